@@ -2,13 +2,21 @@ package dev.efnilite.vilib;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import dev.efnilite.vilib.command.CompletionIndex;
 import dev.efnilite.vilib.command.ViCommand;
+import dev.efnilite.vilib.util.Cooldowns;
+import dev.efnilite.vilib.util.Pipeline;
+import dev.efnilite.vilib.util.Task;
+import dev.efnilite.vilib.util.TickQueue;
+import dev.efnilite.vilib.util.TimingWheel;
 import dev.efnilite.vilib.util.Version;
 import org.bukkit.Bukkit;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.IOException;
+
 /**
  * Main class which plugins may inherit to reduce the amount of setup required.
  * Classes inheriting this may want to create static methods to inherit the logging and ViPlugin vars.
@@ -41,6 +49,11 @@ public abstract class ViPlugin extends JavaPlugin {
 
         gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
 
+        TickQueue.init(this);
+        TimingWheel.init(this);
+        Task.init(this);
+        CompletionIndex.init(this);
+
         enable();
     }
 
@@ -50,6 +63,19 @@ public abstract class ViPlugin extends JavaPlugin {
 
         HandlerList.unregisterAll(this);
         Bukkit.getScheduler().cancelTasks(this);
+        TickQueue.stop();
+        TimingWheel.stop();
+
+        try {
+            Cooldowns.save();
+        } catch (IOException ex) {
+            getLogger().severe("Failed to save cooldowns: %s".formatted(ex.getMessage()));
+        }
+
+        Pipeline.shutdownTimeouts();
+        if (!Task.shutdownIo(1000)) {
+            getLogger().warning("Abandoned I/O tasks which didn't finish within 1 second of disabling");
+        }
     }
 
     /**
@@ -59,7 +85,7 @@ public abstract class ViPlugin extends JavaPlugin {
 
     /**
      * What happens on disable of the plugin inheriting this library.
-     * Disabling will automatically cancel all active tasks and unregister all EventWatchers.
+     * Disabling will automatically cancel all active tasks, wait up to 1 second for running I/O tasks (interrupting them afterwards) and unregister all EventWatchers.
      */
     public abstract void disable();
 
@@ -0,0 +1,46 @@
+package dev.efnilite.vilib.command;
+
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Parses an argument of a {@link CommandTree}. Parsers don't store state, so a single instance is shared by every command.
+ * Common parsers are available in {@link Arguments}.
+ *
+ * @param <T> The type of the parsed value.
+ * @author Efnilite
+ */
+public interface Argument<T> {
+
+    /**
+     * Parses this argument.
+     *
+     * @param sender The sender
+     * @param args   All arguments
+     * @param index  The index of the first argument which belongs to this argument
+     * @return the value, or null if the arguments are invalid.
+     */
+    @Nullable
+    T parse(@NotNull CommandSender sender, @NotNull String[] args, int index);
+
+    /**
+     * Returns the suggestions for the argument which is being typed.
+     *
+     * @param sender   The sender
+     * @param typed    What has been typed so far, in lowercase
+     * @param position The position of the typed argument in this argument, 0 for arguments which consist of a single word
+     * @return the suggestions.
+     */
+    @NotNull
+    List<String> suggest(@NotNull CommandSender sender, @NotNull String typed, int position);
+
+    /**
+     * @return The amount of words this argument consists of.
+     */
+    default int width() {
+        return 1;
+    }
+}
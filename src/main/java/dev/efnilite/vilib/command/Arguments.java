@@ -0,0 +1,190 @@
+package dev.efnilite.vilib.command;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.BlockCommandSender;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The default {@link Argument} parsers. Every method returns a shared instance where possible.
+ *
+ * @author Efnilite
+ */
+public final class Arguments {
+
+    private static final Argument<Integer> INTEGER = integer(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    private static final Argument<Player> PLAYER = new PlayerArgument();
+    private static final Argument<Location> LOCATION = new LocationArgument();
+    private static final Map<Class<?>, Argument<?>> ENUMS = new ConcurrentHashMap<>();
+
+    private Arguments() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @return A parser for any integer.
+     */
+    public static Argument<Integer> integer() {
+        return INTEGER;
+    }
+
+    /**
+     * Returns a parser for an integer within bounds.
+     *
+     * @param min The min value, inclusive
+     * @param max The max value, inclusive
+     * @return the parser.
+     */
+    public static Argument<Integer> integer(int min, int max) {
+        return new Argument<>() {
+            @Override
+            public Integer parse(@NotNull CommandSender sender, @NotNull String[] args, int index) {
+                try {
+                    int value = Integer.parseInt(args[index]);
+
+                    return value < min || value > max ? null : value;
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            }
+
+            @Override
+            public @NotNull List<String> suggest(@NotNull CommandSender sender, @NotNull String typed, int position) {
+                return Collections.emptyList();
+            }
+        };
+    }
+
+    /**
+     * @return A parser for the name of an online player.
+     */
+    public static Argument<Player> player() {
+        return PLAYER;
+    }
+
+    /**
+     * Returns a parser for a constant of an enum, ignoring case.
+     *
+     * @param type The enum class
+     * @param <E>  The enum type
+     * @return the parser.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E>> Argument<E> enumeration(@NotNull Class<E> type) {
+        return (Argument<E>) ENUMS.computeIfAbsent(type, k -> new EnumArgument<>(type));
+    }
+
+    /**
+     * Returns a parser for a location of three words, x y z. Coordinates starting with ~ are relative to the sender.
+     * The world is the world of the sender, or the first world if the sender has no location.
+     *
+     * @return the parser.
+     */
+    public static Argument<Location> location() {
+        return LOCATION;
+    }
+
+    private static class PlayerArgument implements Argument<Player> {
+
+        @Override
+        public Player parse(@NotNull CommandSender sender, @NotNull String[] args, int index) {
+            return Bukkit.getPlayerExact(args[index]);
+        }
+
+        @Override
+        public @NotNull List<String> suggest(@NotNull CommandSender sender, @NotNull String typed, int position) {
+            if (CompletionIndex.isInitialized()) {
+                return CompletionIndex.players().complete(typed);
+            }
+
+            List<String> names = new ArrayList<>();
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (player.getName().toLowerCase().startsWith(typed)) {
+                    names.add(player.getName());
+                }
+            }
+            return names;
+        }
+    }
+
+    // constants are looked up by lowercase name, and the suggestions are computed once
+    private static class EnumArgument<E extends Enum<E>> implements Argument<E> {
+
+        private final Map<String, E> constants = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        public EnumArgument(Class<E> type) {
+            for (E constant : type.getEnumConstants()) {
+                String name = constant.name().toLowerCase();
+                constants.put(name, constant);
+                names.add(name);
+            }
+        }
+
+        @Override
+        public E parse(@NotNull CommandSender sender, @NotNull String[] args, int index) {
+            return constants.get(args[index].toLowerCase());
+        }
+
+        @Override
+        public @NotNull List<String> suggest(@NotNull CommandSender sender, @NotNull String typed, int position) {
+            return names.stream().filter(name -> name.startsWith(typed)).toList();
+        }
+    }
+
+    private static class LocationArgument implements Argument<Location> {
+
+        @Override
+        public Location parse(@NotNull CommandSender sender, @NotNull String[] args, int index) {
+            Location origin = getOrigin(sender);
+            if (origin == null) {
+                return null;
+            }
+
+            try {
+                return new Location(origin.getWorld(),
+                        coordinate(args[index], origin.getX()),
+                        coordinate(args[index + 1], origin.getY()),
+                        coordinate(args[index + 2], origin.getZ()));
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public @NotNull List<String> suggest(@NotNull CommandSender sender, @NotNull String typed, int position) {
+            return typed.isEmpty() ? List.of("~") : Collections.emptyList();
+        }
+
+        @Override
+        public int width() {
+            return 3;
+        }
+
+        private double coordinate(String input, double origin) {
+            if (input.startsWith("~")) {
+                return input.length() == 1 ? origin : origin + Double.parseDouble(input.substring(1));
+            }
+            return Double.parseDouble(input);
+        }
+
+        private Location getOrigin(CommandSender sender) {
+            if (sender instanceof Entity entity) {
+                return entity.getLocation();
+            }
+            if (sender instanceof BlockCommandSender block) {
+                return block.getBlock().getLocation();
+            }
+
+            List<World> worlds = Bukkit.getWorlds();
+            return worlds.isEmpty() ? null : new Location(worlds.get(0), 0, 0, 0);
+        }
+    }
+}
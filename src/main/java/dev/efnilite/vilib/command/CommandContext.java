@@ -0,0 +1,85 @@
+package dev.efnilite.vilib.command;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The sender and parsed arguments of a command executed through a {@link CommandTree}.
+ *
+ * @author Efnilite
+ */
+public class CommandContext {
+
+    private final CommandSender sender;
+    private final String[] args;
+    private final Map<String, Object> values = new HashMap<>();
+
+    CommandContext(CommandSender sender, String[] args) {
+        this.sender = sender;
+        this.args = args;
+    }
+
+    // returns the value this replaces, so it can be restored when backtracking
+    Object put(String name, Object value) {
+        return values.put(name, value);
+    }
+
+    void restore(String name, Object previous) {
+        if (previous == null) {
+            values.remove(name);
+        } else {
+            values.put(name, previous);
+        }
+    }
+
+    /**
+     * Returns the value of an argument.
+     *
+     * @param name The name of the argument
+     * @param <T>  The type of the argument
+     * @return the value.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NotNull String name) {
+        Object value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown argument %s".formatted(name));
+        }
+
+        return (T) value;
+    }
+
+    /**
+     * @param name The name of the argument.
+     * @return True if the argument was provided, false if not.
+     */
+    public boolean has(@NotNull String name) {
+        return values.containsKey(name);
+    }
+
+    /**
+     * @return The sender.
+     */
+    public CommandSender getSender() {
+        return sender;
+    }
+
+    /**
+     * @return The sender if it is a player, else null.
+     */
+    public @Nullable Player getPlayer() {
+        return sender instanceof Player player ? player : null;
+    }
+
+    /**
+     * @return The raw arguments.
+     */
+    public String[] getArgs() {
+        return args;
+    }
+}
@@ -0,0 +1,150 @@
+package dev.efnilite.vilib.command;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Builder for commands which are declared as a tree of literals and arguments, instead of parsing arguments by hand.
+ * The tree is compiled to a {@link TreeCommand}, which derives both execution and tab completion from the same tree.
+ * <p>Example:</p>
+ * <blockquote><code>CommandTree.root()<br>
+ * &nbsp;&nbsp;.then(CommandTree.literal("reload").permission("plugin.reload").executes(ctx -> reload()))<br>
+ * &nbsp;&nbsp;.then(CommandTree.literal("give")<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.then(CommandTree.argument("player", Arguments.player())<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;.then(CommandTree.argument("amount", Arguments.integer(1, 64))<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;.executes(ctx -> give(ctx.get("player"), ctx.get("amount"))))))<br>
+ * &nbsp;&nbsp;.build();</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class CommandTree {
+
+    private final String name;
+    private final Argument<?> argument;
+    private final List<CommandTree> children = new ArrayList<>();
+    private String permission;
+    private Action action;
+
+    private CommandTree(String name, Argument<?> argument) {
+        this.name = name;
+        this.argument = argument;
+    }
+
+    /**
+     * @return A new root, which matches no arguments.
+     */
+    public static CommandTree root() {
+        return new CommandTree("", null);
+    }
+
+    /**
+     * Creates a node which matches a word, ignoring case.
+     *
+     * @param name The word
+     * @return the node.
+     */
+    public static CommandTree literal(@NotNull String name) {
+        if (name.isEmpty() || name.contains(" ")) {
+            throw new IllegalArgumentException("Literal must be a single word");
+        }
+
+        return new CommandTree(name.toLowerCase(), null);
+    }
+
+    /**
+     * Creates a node which matches an argument. The parsed value is available with {@link CommandContext#get(String)}.
+     *
+     * @param name     The name of the argument
+     * @param argument The parser, see {@link Arguments}
+     * @return the node.
+     */
+    public static CommandTree argument(@NotNull String name, @NotNull Argument<?> argument) {
+        return new CommandTree(name, Objects.requireNonNull(argument, "Argument is null (CommandTree#argument)"));
+    }
+
+    /**
+     * Adds a child. Literals are matched before arguments, and arguments are tried in the order they were added.
+     *
+     * @param child The child
+     * @return the instance of this class
+     */
+    public CommandTree then(@NotNull CommandTree child) {
+        children.add(child);
+        return this;
+    }
+
+    /**
+     * Sets the action which is executed when the arguments end at this node.
+     *
+     * @param action The action
+     * @return the instance of this class
+     */
+    public CommandTree executes(@NotNull Action action) {
+        this.action = action;
+        return this;
+    }
+
+    /**
+     * Sets the permission which is required to use this node and its children.
+     * Senders without the permission won't get suggestions for this node.
+     *
+     * @param permission The permission
+     * @return the instance of this class
+     */
+    public CommandTree permission(@Nullable String permission) {
+        this.permission = permission;
+        return this;
+    }
+
+    /**
+     * Compiles this tree.
+     *
+     * @return the command, which can be registered like any other {@link ViCommand}.
+     */
+    public TreeCommand build() {
+        return new TreeCommand(compile());
+    }
+
+    private Node compile() {
+        Map<String, Node> literals = new HashMap<>();
+        List<Node> arguments = new ArrayList<>();
+
+        for (CommandTree child : children) {
+            if (child.argument == null) {
+                if (literals.put(child.name, child.compile()) != null) {
+                    throw new IllegalStateException("Duplicate literal %s".formatted(child.name));
+                }
+            } else {
+                arguments.add(child.compile());
+            }
+        }
+
+        return new Node(name, argument, permission, action, Map.copyOf(literals),
+                arguments.toArray(new Node[0]), literals.keySet().stream().sorted().toArray(String[]::new));
+    }
+
+    /**
+     * An action which is executed when a command matches a node.
+     */
+    @FunctionalInterface
+    public interface Action {
+
+        /**
+         * Executes this action.
+         *
+         * @param context The sender and parsed arguments
+         */
+        void run(@NotNull CommandContext context);
+
+    }
+
+    /**
+     * A compiled node. Literal children are looked up by their lowercase name, argument children are tried in order.
+     */
+    record Node(String name, Argument<?> argument, String permission, Action action,
+                Map<String, Node> literals, Node[] arguments, String[] literalNames) {
+
+    }
+}
@@ -0,0 +1,228 @@
+package dev.efnilite.vilib.command;
+
+import dev.efnilite.vilib.event.EventWatcher;
+import dev.efnilite.vilib.util.Task;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Index of tab completion options, matched by prefix, ignoring case.
+ * Options are stored as a sorted array of lowercase keys, which are computed once, so completing is a binary search
+ * instead of lowercasing and checking every option on every key press.
+ * Updates copy the arrays, so completing never locks and can be done from any thread.
+ * <p>Example:</p>
+ * <blockquote><code>CompletionIndex arenas = new CompletionIndex(getArenaNames());<br>
+ * return completions(args[0], arenas);</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class CompletionIndex {
+
+    private static final CompletionIndex PLAYERS = new CompletionIndex();
+    private static volatile boolean initialized;
+
+    private volatile Entries entries = new Entries(new String[0], new String[0]);
+
+    public CompletionIndex() {
+
+    }
+
+    public CompletionIndex(@NotNull Collection<String> options) {
+        set(options);
+    }
+
+    /**
+     * Starts maintaining the index of online players, which is updated when players join or leave.
+     * Called automatically by {@link dev.efnilite.vilib.ViPlugin} on enable.
+     *
+     * @param plugin The plugin
+     */
+    public static void init(@NotNull Plugin plugin) {
+        new PlayerWatcher().register(plugin);
+
+        PLAYERS.set(Bukkit.getOnlinePlayers().stream().map(Player::getName).toList());
+        initialized = true;
+    }
+
+    /**
+     * @return True if the index of online players is maintained, false if not.
+     */
+    public static boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * @return The index of the names of online players.
+     * @see #init(Plugin)
+     */
+    public static CompletionIndex players() {
+        return PLAYERS;
+    }
+
+    /**
+     * Replaces all options.
+     *
+     * @param options The options
+     */
+    public synchronized void set(@NotNull Collection<String> options) {
+        String[] values = options.stream()
+                .distinct()
+                .sorted(Comparator.comparing(String::toLowerCase))
+                .toArray(String[]::new);
+        String[] keys = new String[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            keys[i] = values[i].toLowerCase();
+        }
+
+        entries = new Entries(keys, values);
+    }
+
+    /**
+     * Adds an option, if it isn't present yet.
+     *
+     * @param option The option
+     */
+    public synchronized void add(@NotNull String option) {
+        Entries current = entries;
+        String key = option.toLowerCase();
+        int index = lowerBound(current.keys(), key);
+
+        for (int i = index; i < current.keys().length && current.keys()[i].equals(key); i++) {
+            if (current.values()[i].equals(option)) {
+                return;
+            }
+        }
+
+        entries = new Entries(insert(current.keys(), index, key), insert(current.values(), index, option));
+    }
+
+    /**
+     * Removes an option.
+     *
+     * @param option The option
+     */
+    public synchronized void remove(@NotNull String option) {
+        Entries current = entries;
+        String key = option.toLowerCase();
+
+        for (int i = lowerBound(current.keys(), key); i < current.keys().length && current.keys()[i].equals(key); i++) {
+            if (current.values()[i].equals(option)) {
+                entries = new Entries(delete(current.keys(), i), delete(current.values(), i));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces all options with the options of a source every interval. The source is called on an I/O thread,
+     * so it may be expensive, such as reading a folder or querying a database. Completing uses the last options.
+     * The refresh task is owned by this index, so it can be stopped with {@link Task#cancelAll(Object)}.
+     *
+     * @param plugin   The plugin
+     * @param source   The source of the options
+     * @param interval The interval in ticks
+     * @return the instance of this class
+     */
+    public CompletionIndex refresh(@NotNull Plugin plugin, @NotNull Supplier<? extends Collection<String>> source, int interval) {
+        Task.create(plugin)
+                .io()
+                .owner(this)
+                .repeat(interval)
+                .execute(() -> set(source.get()))
+                .run();
+
+        return this;
+    }
+
+    /**
+     * Returns all options which start with what has been typed, ignoring case.
+     *
+     * @param typed What has been typed so far
+     * @return the options, sorted. This list can't be modified.
+     */
+    public List<String> complete(@NotNull String typed) {
+        Entries current = entries;
+        String prefix = typed.toLowerCase();
+        String[] keys = current.keys();
+
+        int from = lowerBound(keys, prefix);
+        int to = from;
+        int high = keys.length;
+        while (to < high) { // first key after from which doesn't start with the prefix
+            int mid = (to + high) >>> 1;
+            if (keys[mid].startsWith(prefix)) {
+                to = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return from == to ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(current.values()).subList(from, to));
+    }
+
+    /**
+     * @return The amount of options.
+     */
+    public int size() {
+        return entries.keys().length;
+    }
+
+    // first index at which the key is at least the given key
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String[] insert(String[] array, int index, String value) {
+        String[] copy = new String[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, index);
+        copy[index] = value;
+        System.arraycopy(array, index, copy, index + 1, array.length - index);
+        return copy;
+    }
+
+    private static String[] delete(String[] array, int index) {
+        String[] copy = new String[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, index);
+        System.arraycopy(array, index + 1, copy, index, array.length - index - 1);
+        return copy;
+    }
+
+    // arrays are never modified after being published
+    private record Entries(String[] keys, String[] values) {
+
+    }
+
+    // keeps the index of online players up to date
+    private static class PlayerWatcher implements EventWatcher {
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void join(PlayerJoinEvent event) {
+            PLAYERS.add(event.getPlayer().getName());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void quit(PlayerQuitEvent event) {
+            PLAYERS.remove(event.getPlayer().getName());
+        }
+    }
+}
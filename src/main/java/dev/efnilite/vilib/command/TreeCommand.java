@@ -0,0 +1,122 @@
+package dev.efnilite.vilib.command;
+
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A command compiled from a {@link CommandTree}.
+ * Arguments are matched by walking the tree, so each argument is parsed at most once per candidate node.
+ *
+ * @author Efnilite
+ */
+public class TreeCommand extends ViCommand {
+
+    private final CommandTree.Node root;
+
+    TreeCommand(CommandTree.Node root) {
+        this.root = root;
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String[] args) {
+        if (!canUse(root, sender)) {
+            return false;
+        }
+
+        CommandContext context = new CommandContext(sender, args);
+        CommandTree.Node node = match(root, sender, args, 0, context);
+
+        if (node == null) {
+            return false;
+        }
+
+        node.action().run(context);
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args) {
+        List<String> suggestions = new ArrayList<>();
+
+        if (args.length > 0 && canUse(root, sender)) {
+            suggest(root, sender, args, 0, suggestions);
+        }
+
+        return suggestions;
+    }
+
+    // returns the node with an action at which the arguments end, or null if there is none
+    private CommandTree.Node match(CommandTree.Node node, CommandSender sender, String[] args, int index, CommandContext context) {
+        if (index == args.length) {
+            return node.action() == null ? null : node;
+        }
+
+        CommandTree.Node literal = node.literals().get(args[index].toLowerCase());
+        if (literal != null && canUse(literal, sender)) {
+            CommandTree.Node match = match(literal, sender, args, index + 1, context);
+            if (match != null) {
+                return match;
+            }
+        }
+
+        for (CommandTree.Node child : node.arguments()) {
+            int width = child.argument().width();
+            if (index + width > args.length || !canUse(child, sender)) {
+                continue;
+            }
+
+            Object value = child.argument().parse(sender, args, index);
+            if (value == null) {
+                continue;
+            }
+
+            Object previous = context.put(child.name(), value);
+            CommandTree.Node match = match(child, sender, args, index + width, context);
+            if (match != null) {
+                return match;
+            }
+            context.restore(child.name(), previous); // so a different branch doesn't see this value
+        }
+
+        return null;
+    }
+
+    // the last argument is the one being typed
+    private void suggest(CommandTree.Node node, CommandSender sender, String[] args, int index, List<String> suggestions) {
+        int last = args.length - 1;
+        String typed = args[index].toLowerCase();
+
+        if (index == last) {
+            for (String name : node.literalNames()) {
+                if (name.startsWith(typed) && canUse(node.literals().get(name), sender)) {
+                    suggestions.add(name);
+                }
+            }
+        } else {
+            CommandTree.Node literal = node.literals().get(typed);
+            if (literal != null && canUse(literal, sender)) {
+                suggest(literal, sender, args, index + 1, suggestions);
+            }
+        }
+
+        for (CommandTree.Node child : node.arguments()) {
+            if (!canUse(child, sender)) {
+                continue;
+            }
+
+            int width = child.argument().width();
+            if (index + width > last) { // typing inside this argument
+                suggestions.addAll(child.argument().suggest(sender, args[last].toLowerCase(), last - index));
+            } else if (child.argument().parse(sender, args, index) != null) {
+                suggest(child, sender, args, index + width, suggestions);
+            }
+        }
+    }
+
+    private boolean canUse(CommandTree.Node node, CommandSender sender) {
+        return node.permission() == null || sender.hasPermission(node.permission());
+    }
+}
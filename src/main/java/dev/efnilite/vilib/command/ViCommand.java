@@ -1,22 +1,54 @@
 package dev.efnilite.vilib.command;
 
+import dev.efnilite.vilib.util.Cooldowns;
+import dev.efnilite.vilib.util.Pipeline;
+import dev.efnilite.vilib.util.RateLimiter;
+import dev.efnilite.vilib.util.Strings;
+import dev.efnilite.vilib.util.Task;
 import org.bukkit.command.*;
-import org.bukkit.entity.Player;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Class to wrap commands, which makes it a lot easier to produce them.
+ * Commands which do blocking work, such as database or file access, can override {@link #isAsync()}
+ * to be executed on an I/O thread. Use {@link #sync(Runnable)} to access the world from those commands.
  *
  * @author Efnilite
  */
 public abstract class ViCommand implements CommandExecutor, TabCompleter {
 
     /**
-     * UUID-based cooldown system
+     * The max amount of arguments and sender names for which cooldown keys are cached.
      */
-    private final Map<UUID, List<CommandCooldown>> cooldowns = new HashMap<>();
+    public static final int MAX_CACHED_COOLDOWN_KEYS = 256;
+
+    /**
+     * The ids of senders without a UUID, such as command blocks, by name.
+     */
+    private static final Map<String, UUID> senderIds = new ConcurrentHashMap<>();
+
+    /**
+     * The cooldown keys of each argument, see {@link Cooldowns#canPerform(UUID, String, long)}
+     */
+    private final Map<String, String> cooldownKeys = new ConcurrentHashMap<>();
+
+    /**
+     * The async executions of each sender, see {@link #isAsync()}. Senders without executions are removed.
+     */
+    private final Map<Object, Set<Execution>> executions = new ConcurrentHashMap<>();
+    private volatile int pruneAt = 16; // amount of senders at which senders whose executions were cancelled are removed
+
+    private Plugin plugin;
 
     /**
      * Execute a command
@@ -29,7 +61,84 @@ public abstract class ViCommand implements CommandExecutor, TabCompleter {
     public abstract List<String> tabComplete(CommandSender sender, String[] args);
 
     /**
-     * Checks the cooldown
+     * Returns whether this command is executed on an I/O thread instead of the main thread.
+     * Async executions are cancelled when the player who executed them leaves. Executions which haven't started yet
+     * never run. Running executions aren't interrupted, so they can't leave database or file work half done,
+     * but long executions should check {@link #isCancelled()} between steps to stop early.
+     * When {@link #execute(CommandSender, String[])} returns false, the usage message is sent as usual.
+     *
+     * @return true if this command is async, false if not.
+     */
+    protected boolean isAsync() {
+        return false;
+    }
+
+    /**
+     * Returns whether the async execution which is running on this thread has been cancelled,
+     * because the player who executed it has left.
+     *
+     * @return true if the execution has been cancelled, false if not.
+     * @see #isAsync()
+     */
+    protected boolean isCancelled() {
+        return Task.isCurrentCancelled();
+    }
+
+    /**
+     * @return The max amount of async executions of this command a single sender may have running at once.
+     */
+    protected int getMaxConcurrent() {
+        return 1;
+    }
+
+    /**
+     * Called when a sender executes this command while they already have the max amount of async executions running.
+     *
+     * @param sender The sender
+     */
+    protected void busy(CommandSender sender) {
+        sender.sendMessage(Strings.colour("<red>Please wait until your previous command has finished."));
+    }
+
+    /**
+     * @return The plugin which provides this command, used to schedule async executions.
+     */
+    protected Plugin getPlugin() {
+        if (plugin == null) {
+            plugin = JavaPlugin.getProvidingPlugin(getClass());
+        }
+        return plugin;
+    }
+
+    /**
+     * Runs a runnable on the main thread. Use this to access the world from an async command.
+     * When called from the main thread, the runnable is run immediately.
+     *
+     * @param runnable The runnable
+     */
+    protected void sync(Runnable runnable) {
+        Task.mainExecutor(getPlugin()).execute(runnable);
+    }
+
+    /**
+     * Gets a value on the main thread. Use this to read the world from an async command.
+     * Calling {@link Pipeline#join()} from an async command waits for the value.
+     *
+     * @param supplier The supplier
+     * @param <T>      The type of the value
+     * @return the pipeline, which completes with the value.
+     */
+    protected <T> Pipeline<T> sync(Supplier<T> supplier) {
+        return Task.supplySync(getPlugin(), supplier);
+    }
+
+    /**
+     * Checks the cooldown. Cooldowns are stored in {@link Cooldowns} per command class, argument and sender,
+     * so all instances of a command class share their cooldowns, and cooldowns are kept when a command is registered again.
+     * Console senders are never on cooldown. Entities, such as players, are identified by their UUID,
+     * and other senders, such as command blocks, by their name.
+     * The argument should be one of a fixed set of names, such as the name of a subcommand. Only the keys of the first
+     * {@value #MAX_CACHED_COOLDOWN_KEYS} arguments are cached, so checking other arguments allocates a key every time.
      *
      * @param sender     The CommandSender which may have a cooldown
      * @param arg        The argument to which this cooldown applies
@@ -37,43 +146,58 @@ public abstract class ViCommand implements CommandExecutor, TabCompleter {
      * @return false if the cooldown is not over yet, true if it has been.
      */
     protected boolean cooldown(CommandSender sender, String arg, long cooldownMs) {
-        if (sender instanceof ConsoleCommandSender) { // ignore console (has no UUID)
+        if (sender instanceof ConsoleCommandSender || sender instanceof RemoteConsoleCommandSender) { // ignore console (has no UUID)
             return true;
         }
+        if (sender instanceof ProxiedCommandSender proxied) { // e.g. /execute as
+            return cooldown(proxied.getCallee(), arg, cooldownMs);
+        }
 
-        Player player = (Player) sender;
-        UUID uuid = player.getUniqueId();
-
-        CommandCooldown cooldown; // the current cooldown
-        List<CommandCooldown> playerCooldowns = cooldowns.get(uuid);
+        String key = cooldownKeys.get(arg);
+        if (key == null) {
+            key = "%s:%s".formatted(getClass().getName(), arg);
 
-        if (playerCooldowns == null) {
-            playerCooldowns = new ArrayList<>();
-            playerCooldowns.add(new CommandCooldown(System.currentTimeMillis(), arg));
-            cooldowns.put(uuid, playerCooldowns);
-            return true;
+            if (cooldownKeys.size() < MAX_CACHED_COOLDOWN_KEYS) {
+                cooldownKeys.put(arg, key);
+            }
         }
 
-        // get the appropriate commandcooldown class
-        cooldown = playerCooldowns.stream()
-                .filter(plCooldown -> plCooldown.arg().equals(arg))
-                .findFirst().orElse(null);
+        UUID uuid = sender instanceof Entity entity ? entity.getUniqueId() : getSenderId(sender.getName());
 
-        if (cooldown == null) { // cooldown doesnt exist yet
-            playerCooldowns.add(new CommandCooldown(System.currentTimeMillis(), arg));
-            cooldowns.put(uuid, playerCooldowns);
-            return true;
+        return Cooldowns.canPerform(uuid, key, cooldownMs);
+    }
+
+    // a name-based UUID, which never equals the random UUID of an entity
+    private static UUID getSenderId(String name) {
+        UUID id = senderIds.get(name);
+        if (id != null) {
+            return id;
         }
 
-        if (System.currentTimeMillis() - cooldown.lastExecuted() <= cooldownMs) {
-            return false;
+        id = UUID.nameUUIDFromBytes(("ViCommand:" + name).getBytes(StandardCharsets.UTF_8));
+        if (senderIds.size() < MAX_CACHED_COOLDOWN_KEYS) {
+            senderIds.put(name, id);
         }
+        return id;
+    }
 
-        playerCooldowns.remove(cooldown); // update cooldown
-        playerCooldowns.add(new CommandCooldown(System.currentTimeMillis(), arg));
-        cooldowns.put(uuid, playerCooldowns);
+    /**
+     * Checks a rate limit
+     *
+     * @param sender  The CommandSender which may be limited
+     * @param arg     The argument to which this limit applies, one of a fixed set, see {@link RateLimiter#getActionId(String)}
+     * @param limiter The limiter
+     * @return false if the limit has been reached, true if not.
+     */
+    protected boolean limit(CommandSender sender, String arg, RateLimiter limiter) {
+        if (sender instanceof ProxiedCommandSender proxied) { // e.g. /execute as
+            return limit(proxied.getCallee(), arg, limiter);
+        }
+        if (!(sender instanceof Entity entity)) { // ignore console and command blocks (have no UUID)
+            return true;
+        }
 
-        return true;
+        return limiter.tryAcquire(entity.getUniqueId(), arg);
     }
 
     /**
@@ -98,9 +222,86 @@ public abstract class ViCommand implements CommandExecutor, TabCompleter {
         return Arrays.stream(possible).filter(option -> option.toLowerCase().contains(typed)).toList();
     }
 
+    /**
+     * Gets completions which start with what the user has already typed.
+     * Use this instead of the other methods for large or frequently used sets of options.
+     *
+     * @param typed What the player has typed so far
+     * @param index The index of possible completions
+     * @return the updated possible completions
+     */
+    protected List<String> completions(String typed, CompletionIndex index) {
+        return index.complete(typed);
+    }
+
     @Override
     public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, String[] args) {
-        return execute(sender, args);
+        if (!isAsync()) {
+            return execute(sender, args);
+        }
+
+        CommandSender source = sender instanceof ProxiedCommandSender proxied ? proxied.getCallee() : sender;
+        Object key = source instanceof Entity entity ? entity.getUniqueId() : source.getName();
+        AtomicInteger state = new AtomicInteger(Execution.PENDING);
+        boolean[] busy = new boolean[1];
+
+        // sets are only accessed in compute, which locks the sender
+        executions.compute(key, (k, running) -> {
+            if (running == null) {
+                running = new HashSet<>();
+            }
+            running.removeIf(Execution::isDone);
+
+            if (running.size() >= getMaxConcurrent()) {
+                busy[0] = true;
+                return running;
+            }
+
+            BukkitTask task = Task.create(getPlugin())
+                    .io()
+                    .owner(source)
+                    .uninterruptible()
+                    .execute(() -> {
+                        if (!state.compareAndSet(Execution.PENDING, Execution.RUNNING)) {
+                            return; // cancelled and already counted as done
+                        }
+
+                        try {
+                            if (!execute(sender, args) && !command.getUsage().isEmpty()) {
+                                sync(() -> sender.sendMessage(command.getUsage().replace("<command>", label)));
+                            }
+                        } finally {
+                            state.set(Execution.DONE);
+                            executions.computeIfPresent(key, (k2, set) -> {
+                                set.removeIf(Execution::isDone);
+                                return set.isEmpty() ? null : set;
+                            });
+                        }
+                    })
+                    .run();
+            running.add(new Execution(task, state));
+            return running;
+        });
+
+        if (busy[0]) {
+            busy(sender);
+        }
+        if (executions.size() >= pruneAt) {
+            prune();
+        }
+
+        return true;
+    }
+
+    // removes senders whose executions were cancelled before they started, so never removed themselves
+    private void prune() {
+        for (Object key : executions.keySet()) {
+            executions.computeIfPresent(key, (k, set) -> {
+                set.removeIf(Execution::isDone);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        pruneAt = Math.max(16, executions.size() * 2);
     }
 
     @Override
@@ -108,11 +309,17 @@ public abstract class ViCommand implements CommandExecutor, TabCompleter {
         return tabComplete(sender, args);
     }
 
-    /**
-     * @param arg          The argument
-     * @param lastExecuted When the command with arg was last executed
-     */
-    private record CommandCooldown(long lastExecuted, String arg) {
+    // an async execution, which is running until it has finished or was cancelled before starting.
+    // an execution which was cancelled while running still counts until it has finished
+    private record Execution(BukkitTask task, AtomicInteger state) {
 
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+
+        private boolean isDone() {
+            // claims a cancelled execution which hasn't started, so it won't start after being counted as done
+            return state.get() == DONE || (task.isCancelled() && state.compareAndSet(PENDING, DONE));
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import dev.efnilite.vilib.event.EventWatcher;
 import dev.efnilite.vilib.inventory.item.Item;
 import dev.efnilite.vilib.inventory.item.MenuItem;
 import dev.efnilite.vilib.util.Numbers;
+import dev.efnilite.vilib.util.RateLimiter;
 import dev.efnilite.vilib.util.Strings;
 import dev.efnilite.vilib.util.Task;
 import org.bukkit.Bukkit;
@@ -14,7 +15,6 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -55,6 +55,9 @@ public class Menu implements EventWatcher {
     protected UUID inventoryId;
     protected Player player;
     protected Material filler = null;
+    protected RateLimiter limiter = null;
+    private final Set<Integer> dirtySlots = new HashSet<>();
+    private boolean dirty = false;
 
     public Menu(int rows, String name) {
         if (rows < 1 || rows > 6) {
@@ -142,38 +145,82 @@ public class Menu implements EventWatcher {
     }
 
     /**
-     * Updates a specific item
+     * Limits how often players can click items in this menu. Clicks over the limit are cancelled and ignored.
+     * The same limiter can be shared by multiple menus to limit clicks across them.
+     *
+     * @param limiter The limiter
+     * @return the instance of this class
+     */
+    public Menu limit(@NotNull RateLimiter limiter) {
+        this.limiter = limiter;
+        return this;
+    }
+
+    /**
+     * Updates specific items. Multiple updates in the same tick are combined and rendered once, at the start of the next tick.
      *
      * @param slots The slots which are to be updated
      */
     public void updateItem(int... slots) {
-        Inventory inventory = player.getOpenInventory().getTopInventory();
-
-        if (inventory.getSize() % 9 != 0) {
-            throw new IllegalArgumentException("Invalid inventory type");
-        }
+        checkInventory();
 
         for (int slot : slots) {
-            inventory.setItem(slot, items.get(slot).build());
+            dirtySlots.add(slot);
         }
+        requestRender();
     }
 
     /**
-     * Updates all items in the inventory
+     * Updates all items in the inventory. Multiple updates in the same tick are combined and rendered once, at the start of the next tick.
      */
     public void update() {
-        Inventory inventory = player.getOpenInventory().getTopInventory();
+        checkInventory();
 
-        if (inventory.getSize() % 9 != 0) {
+        dirty = true;
+        requestRender();
+    }
+
+    private void checkInventory() {
+        if (player.getOpenInventory().getTopInventory().getSize() % 9 != 0) {
             throw new IllegalArgumentException("Invalid inventory type");
         }
+    }
 
-        inventory.clear();
-        items.forEach((slot, item) -> inventory.setItem(slot, item.build()));
+    private void requestRender() {
+        if (plugin == null) { // not initialized, so update immediately
+            render();
+            return;
+        }
+
+        Task.coalesce(plugin, this, this::render);
+    }
+
+    // applies all updates requested since the last render
+    private void render() {
+        Inventory inventory = player.getOpenInventory().getTopInventory();
+
+        if (deactivated || inventory.getSize() % 9 != 0) {
+            dirty = false;
+            dirtySlots.clear();
+            return;
+        }
+
+        if (dirty) {
+            inventory.clear();
+            items.forEach((slot, item) -> inventory.setItem(slot, item.build()));
+        } else {
+            for (int slot : dirtySlots) {
+                MenuItem item = items.get(slot);
+                inventory.setItem(slot, item == null ? null : item.build());
+            }
+        }
+
+        dirty = false;
+        dirtySlots.clear();
     }
 
     /**
-     * Updates all items by calling {@link #update()} in the inventory periodically.
+     * Updates all items by calling {@link #update()} in the inventory periodically, until the menu is closed.
      *
      * @param tickInterval The amount of ticks to wait between calling {@link #update()}
      */
@@ -184,15 +231,11 @@ public class Menu implements EventWatcher {
 
         Task.create(plugin)
                 .repeat(tickInterval)
-                .execute(new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        if (deactivated) {
-                            cancel();
-                            return;
-                        }
-
-                        update();
+                .owner(this)
+                .execute(() -> {
+                    if (!deactivated) { // already on the main thread, so render immediately
+                        dirty = true;
+                        render();
                     }
                 })
                 .run();
@@ -281,6 +324,11 @@ public class Menu implements EventWatcher {
             return;
         }
 
+        if (limiter != null && !limiter.tryAcquire(event.getWhoClicked().getUniqueId(), "menu click")) {
+            event.setCancelled(true);
+            return;
+        }
+
         event.setCancelled(!clickedItem.isMovable());
 
         clickedItem.handleClick(this, event, event.getClick());
@@ -301,6 +349,7 @@ public class Menu implements EventWatcher {
         deactivated = true;
         disabledMenus.add(this);
         openMenus.remove(viewerId);
+        Task.cancelAll(this); // stop updates and items which are still running
     }
 
     /**
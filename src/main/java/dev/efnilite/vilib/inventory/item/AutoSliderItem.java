@@ -10,7 +10,7 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,6 +35,7 @@ public class AutoSliderItem extends MenuItem {
     private final Menu menu;
     private final Map<Integer, Item> items = new HashMap<>();
     private final Map<Integer, Consumer<MenuClickEvent>> clickFunctions = new HashMap<>();
+    private BukkitTask task;
 
     /**
      * The constructor.
@@ -107,20 +108,18 @@ public class AutoSliderItem extends MenuItem {
         }
 
         if (items.size() > 1) { // loop through if there is more than 1 player
-            BukkitRunnable runnable = new BukkitRunnable() {
-                @Override
-                public void run() {
-                    InventoryView view = menu.getPlayer().getOpenInventory();
-                    if (view.getTitle().equals(menu.getTitle())) {
-                        view.getTopInventory().setItem(slot, getNextItem().build());
-                    } else {
-                        cancel(); // prevent going on forever
-                    }
+            if (task != null) { // rebuilt, so stop the previous loop
+                task.cancel();
+            }
+
+            task = Task.create(plugin).delay(cooldown).repeat(cooldown).owner(menu).execute(() -> {
+                InventoryView view = menu.getPlayer().getOpenInventory();
+                if (view.getTitle().equals(menu.getTitle())) {
+                    view.getTopInventory().setItem(slot, getNextItem().build());
+                } else {
+                    task.cancel(); // prevent going on forever
                 }
-            };
-
-            Task task = Task.create(plugin).delay(cooldown).repeat(cooldown).execute(runnable);
-            task.run();
+            }).run();
         }
 
         return init.build();
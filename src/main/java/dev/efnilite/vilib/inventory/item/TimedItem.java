@@ -10,7 +10,6 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
  * A MenuItem which only stays for a certain amount of ticks. This item is meant as a confirm option or to display items for a small amount of time.
@@ -50,21 +49,18 @@ public class TimedItem extends MenuItem {
 
     @Override
     public ItemStack build() {
-        BukkitRunnable runnable = new BukkitRunnable() {
-            @Override
-            public void run() {
-                Menu menu = event.menu();
-                InventoryView view = player.getOpenInventory();
-                if (view.getTitle().equals(menu.getTitle())) {
-                    menu.item(event.slot(), revertTo);
-                    menu.updateItem(event.slot());
-                } else {
-                    cancel(); // prevent going on forever
-                }
-            }
-        };
+        if (task != null) { // rebuilt before the previous task ran
+            task.cancel();
+        }
 
-        task = Task.create(plugin).delay(timeStay).execute(runnable);
+        task = Task.create(plugin).delay(timeStay).owner(event.menu()).execute(() -> {
+            Menu menu = event.menu();
+            InventoryView view = player.getOpenInventory();
+            if (view.getTitle().equals(menu.getTitle())) {
+                menu.item(event.slot(), revertTo);
+                menu.updateItem(event.slot());
+            }
+        });
         task.run();
 
         return item.build();
@@ -0,0 +1,259 @@
+package dev.efnilite.vilib.particle;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A precomputed particle animation, read from a memory-mapped file.
+ * Every frame stores its points per {@link ParticleData}, which is referenced by its index in a palette provided when playing.
+ * Playing an animation only reads the points of each frame, so no geometry is computed while playing.
+ * <p>Animations are created using a {@link Recorder}:</p>
+ * <blockquote><code>Animation.Recorder recorder = new Animation.Recorder();<br>
+ * for (int i = 0; i < 40; i++) { recorder.frame().add(0, Shape.circle(i / 10.0, 40)); }<br>
+ * recorder.save(file);<br>
+ * Animation.load(file).play(engine, player, location, List.of(data), false);</code></blockquote>
+ * <p>File format, big endian:</p>
+ * <ul>
+ *     <li>Header: magic, version, frame count, palette size, max points per frame, max groups per frame (all ints),
+ *     followed by the byte offset of each frame (longs).</li>
+ *     <li>Frame: group count (int), then per group the palette index (int), the point count (int) and the points (x, y, z floats).</li>
+ * </ul>
+ *
+ * @author Efnilite
+ */
+public class Animation {
+
+    /**
+     * The version of the animation file format.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x56495041; // VIPA
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final int frames;
+    private final int paletteSize;
+    private final int maxPoints;
+    private final int maxGroups;
+
+    private Animation(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an animation file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported animation version %d".formatted(buffer.getInt(4)));
+        }
+
+        this.frames = buffer.getInt(8);
+        this.paletteSize = buffer.getInt(12);
+        this.maxPoints = buffer.getInt(16);
+        this.maxGroups = buffer.getInt(20);
+    }
+
+    /**
+     * Memory-maps an animation file. The file must not be changed while the animation is in use.
+     *
+     * @param file The file
+     * @return the animation.
+     */
+    public static Animation load(@NotNull File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new Animation(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Plays this animation. Must be called on the main thread.
+     *
+     * @param engine  The engine
+     * @param owner   The owner of the effect. May be null.
+     * @param origin  The location which all points are relative to
+     * @param palette The particle data, where the index in the list is the index used while recording
+     * @param loop    Whether to restart after the last frame. Looping animations play until they are cancelled.
+     * @return the effect.
+     */
+    public ParticleEngine.Effect play(@NotNull ParticleEngine engine, @Nullable Object owner, @NotNull Location origin,
+                                      @NotNull List<ParticleData<?>> palette, boolean loop) {
+        if (frames == 0) {
+            throw new IllegalStateException("Animation has no frames");
+        }
+        if (palette.size() < paletteSize) {
+            throw new IllegalArgumentException("Palette contains %d items, but animation requires %d".formatted(palette.size(), paletteSize));
+        }
+
+        return engine.play(new AnimationEffect(owner, origin, loop ? 0 : frames, palette));
+    }
+
+    /**
+     * @return The amount of frames.
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    // reads a frame, with a buffer per frame parity so reading the next frame doesn't overwrite the one being sent
+    private class AnimationEffect extends ParticleEngine.Effect {
+
+        private final List<ParticleData<?>> palette;
+        private final double[][] points = new double[2][maxPoints * 3];
+        private final int[][] groups = new int[2][maxGroups * 2]; // [palette index, point count] per group
+        private final int[] groupCounts = new int[2];
+
+        public AnimationEffect(@Nullable Object owner, Location origin, int lifetime, List<ParticleData<?>> palette) {
+            super(owner, origin, lifetime);
+            this.palette = palette;
+        }
+
+        @Override
+        protected void compute(int frame) {
+            int parity = frame & 1;
+            int position = (int) buffer.getLong(HEADER_SIZE + (frame % frames) * Long.BYTES);
+            int groupCount = buffer.getInt(position);
+            position += Integer.BYTES;
+
+            int point = 0;
+            for (int group = 0; group < groupCount; group++) {
+                int count = buffer.getInt(position + Integer.BYTES);
+                groups[parity][group * 2] = buffer.getInt(position);
+                groups[parity][group * 2 + 1] = count;
+                position += 2 * Integer.BYTES;
+
+                for (int i = 0; i < count * 3; i++) {
+                    points[parity][point * 3 + i] = buffer.getFloat(position);
+                    position += Float.BYTES;
+                }
+                point += count;
+            }
+
+            groupCounts[parity] = groupCount;
+        }
+
+        @Override
+        protected void emit(ParticleDispatcher dispatcher, int frame) {
+            int parity = frame & 1;
+
+            int point = 0;
+            for (int group = 0; group < groupCounts[parity]; group++) {
+                int count = groups[parity][group * 2 + 1];
+                dispatcher.draw(origin, points[parity], point, count, palette.get(groups[parity][group * 2]));
+                point += count;
+            }
+        }
+    }
+
+    /**
+     * Records an animation frame by frame.
+     */
+    public static class Recorder {
+
+        private final List<List<Group>> frames = new ArrayList<>();
+
+        /**
+         * Starts a new frame. Points added after this call belong to the new frame.
+         *
+         * @return the instance of this class
+         */
+        public Recorder frame() {
+            frames.add(new ArrayList<>());
+            return this;
+        }
+
+        /**
+         * Adds a shape to the current frame.
+         *
+         * @param data  The index of the particle data in the palette used while playing
+         * @param shape The shape
+         * @return the instance of this class
+         */
+        public Recorder add(int data, @NotNull Shape shape) {
+            return add(data, shape.getPoints());
+        }
+
+        /**
+         * Adds points to the current frame.
+         *
+         * @param data   The index of the particle data in the palette used while playing
+         * @param points The offsets, stored as x, y, z triples
+         * @return the instance of this class
+         */
+        public Recorder add(int data, double @NotNull ... points) {
+            if (frames.isEmpty()) {
+                throw new IllegalStateException("No frame has been started");
+            }
+            if (points.length % 3 != 0) {
+                throw new IllegalArgumentException("Points must be x, y, z triples");
+            }
+            if (data < 0) {
+                throw new IllegalArgumentException("Data index must be 0 or above");
+            }
+
+            frames.get(frames.size() - 1).add(new Group(data, points.clone()));
+            return this;
+        }
+
+        /**
+         * Writes the animation to a file.
+         *
+         * @param file The file
+         */
+        public void save(@NotNull File file) throws IOException {
+            int paletteSize = 0;
+            int maxPoints = 0;
+            int maxGroups = 0;
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            long[] offsets = new long[frames.size()];
+            long start = HEADER_SIZE + (long) frames.size() * Long.BYTES;
+
+            for (int frame = 0; frame < frames.size(); frame++) {
+                List<Group> groups = frames.get(frame);
+                offsets[frame] = start + out.size();
+
+                out.writeInt(groups.size());
+                int points = 0;
+                for (Group group : groups) {
+                    out.writeInt(group.data());
+                    out.writeInt(group.points().length / 3);
+                    for (double value : group.points()) {
+                        out.writeFloat((float) value);
+                    }
+
+                    points += group.points().length / 3;
+                    paletteSize = Math.max(paletteSize, group.data() + 1);
+                }
+
+                maxPoints = Math.max(maxPoints, points);
+                maxGroups = Math.max(maxGroups, groups.size());
+            }
+
+            try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                stream.writeInt(MAGIC);
+                stream.writeInt(VERSION);
+                stream.writeInt(frames.size());
+                stream.writeInt(paletteSize);
+                stream.writeInt(maxPoints);
+                stream.writeInt(maxGroups);
+                for (long offset : offsets) {
+                    stream.writeLong(offset);
+                }
+                body.writeTo(stream);
+            }
+        }
+
+        private record Group(int data, double[] points) {
+
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package dev.efnilite.vilib.particle;
+
+import dev.efnilite.vilib.util.Task;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sends particles only to players who can actually see them.
+ * <ul>
+ *     <li>Players further away than the view distance receive nothing.</li>
+ *     <li>Players who are further away than the LOD distance and are looking away receive nothing.</li>
+ *     <li>Players receive fewer points the further away they are: every LOD distance, the density is reduced.</li>
+ *     <li>Every player can receive at most a limited amount of particles per tick.</li>
+ * </ul>
+ * All methods must be called on the main thread. Call {@link #stop()} when the dispatcher is no longer used.
+ * <p>Example:</p>
+ * <blockquote><code>ParticleDispatcher dispatcher = new ParticleDispatcher(plugin).budget(500);<br>
+ * dispatcher.draw(location, Shape.circle(2, 40), data);</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class ParticleDispatcher {
+
+    private static final double[] ORIGIN = new double[]{0, 0, 0};
+
+    private int budget = 1000;
+    private double viewDistance = 48;
+    private double lodDistance = 16;
+    private double viewAngleCos = Math.cos(Math.toRadians(70));
+    private int tick = 0;
+    private final Map<UUID, int[]> used = new HashMap<>(); // player -> [tick, particles sent in that tick]
+    private final BukkitTask task;
+
+    /**
+     * Constructor. Starts the task which resets the budget of every player each tick.
+     *
+     * @param plugin The plugin
+     */
+    public ParticleDispatcher(@NotNull Plugin plugin) {
+        this.task = Task.create(plugin).repeat(1).execute(() -> {
+            tick++;
+
+            if (tick % (60 * 20) == 0) { // forget players who haven't received particles in the last minute
+                used.values().removeIf(entry -> tick - entry[0] > 60 * 20);
+            }
+        }).run();
+    }
+
+    /**
+     * Sets the max amount of particles a single player can receive each tick.
+     *
+     * @param budget The budget
+     * @return the instance of this class
+     */
+    public ParticleDispatcher budget(int budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * Sets the distance after which players don't receive particles.
+     *
+     * @param viewDistance The distance in blocks
+     * @return the instance of this class
+     */
+    public ParticleDispatcher viewDistance(double viewDistance) {
+        this.viewDistance = viewDistance;
+        return this;
+    }
+
+    /**
+     * Sets the distance after which the density is reduced.
+     * Players within this distance receive all points, players within twice this distance receive half the points, etc.
+     *
+     * @param lodDistance The distance in blocks
+     * @return the instance of this class
+     */
+    public ParticleDispatcher lodDistance(double lodDistance) {
+        if (lodDistance <= 0) {
+            throw new IllegalArgumentException("LOD distance must be above 0");
+        }
+
+        this.lodDistance = lodDistance;
+        return this;
+    }
+
+    /**
+     * Sets the max angle between the direction a player is looking in and the direction of the particles.
+     *
+     * @param degrees The angle in degrees
+     * @return the instance of this class
+     */
+    public ParticleDispatcher viewAngle(double degrees) {
+        this.viewAngleCos = Math.cos(Math.toRadians(degrees));
+        return this;
+    }
+
+    /**
+     * Draws a single particle.
+     *
+     * @param at   The location
+     * @param data The particle data
+     * @return the amount of players the particle was sent to.
+     */
+    public <T> int draw(@NotNull Location at, @NotNull ParticleData<T> data) {
+        return draw(at, ORIGIN, 1, data);
+    }
+
+    /**
+     * Draws a shape.
+     *
+     * @param at    The location which all offsets are relative to
+     * @param shape The shape
+     * @param data  The particle data
+     * @return the total amount of particles sent.
+     */
+    public <T> int draw(@NotNull Location at, @NotNull Shape shape, @NotNull ParticleData<T> data) {
+        return draw(at, shape.getPoints(), shape.size(), data);
+    }
+
+    /**
+     * Draws points relative to a location.
+     *
+     * @param at     The location which all offsets are relative to, also used to determine the distance to players
+     * @param points The offsets, stored as x, y, z triples
+     * @param count  The amount of points in the array to draw
+     * @param data   The particle data
+     * @return the total amount of particles sent.
+     */
+    public <T> int draw(@NotNull Location at, double @NotNull [] points, int count, @NotNull ParticleData<T> data) {
+        return draw(at, points, 0, count, data);
+    }
+
+    /**
+     * Draws points relative to a location.
+     *
+     * @param at     The location which all offsets are relative to, also used to determine the distance to players
+     * @param points The offsets, stored as x, y, z triples
+     * @param from   The index of the first point in the array to draw
+     * @param count  The amount of points in the array to draw
+     * @param data   The particle data
+     * @return the total amount of particles sent.
+     */
+    public <T> int draw(@NotNull Location at, double @NotNull [] points, int from, int count, @NotNull ParticleData<T> data) {
+        World world = at.getWorld();
+        if (world == null) {
+            throw new NullPointerException("World is null (ParticleDispatcher#draw)");
+        }
+
+        double x = at.getX();
+        double y = at.getY();
+        double z = at.getZ();
+        double maxDistanceSquared = viewDistance * viewDistance;
+
+        int sent = 0;
+        for (Player player : world.getPlayers()) {
+            Location eye = player.getEyeLocation();
+
+            double dx = x - eye.getX();
+            double dy = y - eye.getY();
+            double dz = z - eye.getZ();
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+
+            if (distanceSquared > maxDistanceSquared) {
+                continue;
+            }
+
+            double distance = Math.sqrt(distanceSquared);
+            if (distance > lodDistance) {
+                Vector direction = eye.getDirection();
+                double dot = (direction.getX() * dx + direction.getY() * dy + direction.getZ() * dz) / distance;
+
+                if (dot < viewAngleCos) { // looking away
+                    continue;
+                }
+            }
+
+            int[] entry = used.computeIfAbsent(player.getUniqueId(), k -> new int[2]);
+            if (entry[0] != tick) {
+                entry[0] = tick;
+                entry[1] = 0;
+            }
+
+            int stride = 1 + (int) (distance / lodDistance);
+            int remaining = budget - entry[1];
+
+            for (int i = 0; i < count && remaining > 0; i += stride) {
+                int index = (from + i) * 3;
+                player.spawnParticle(data.getType(), x + points[index], y + points[index + 1], z + points[index + 2],
+                        data.getSize(), data.getOffsetX(), data.getOffsetY(), data.getOffsetZ(), data.getSpeed(), data.getData());
+                remaining--;
+                sent++;
+            }
+
+            entry[1] = budget - remaining;
+        }
+
+        return sent;
+    }
+
+    /**
+     * Stops the task which resets the budget of every player. The dispatcher shouldn't be used afterwards.
+     */
+    public void stop() {
+        task.cancel();
+        used.clear();
+    }
+
+    /**
+     * @param player The player.
+     * @return The amount of particles the player can still receive this tick.
+     */
+    public int getRemaining(@NotNull Player player) {
+        int[] entry = used.get(player.getUniqueId());
+
+        return entry == null || entry[0] != tick ? budget : Math.max(0, budget - entry[1]);
+    }
+}
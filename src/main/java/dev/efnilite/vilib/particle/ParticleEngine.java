@@ -0,0 +1,250 @@
+package dev.efnilite.vilib.particle;
+
+import dev.efnilite.vilib.util.Task;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs every particle effect in a single repeating task, instead of one task per effect.
+ * Each tick, the points of the next frame of every effect are computed asynchronously,
+ * while the previously computed frame is sent on the main thread through a {@link ParticleDispatcher}.
+ * When computing takes longer than a tick, emission waits for it, so frames are never skipped or mixed.
+ * <p>Example:</p>
+ * <blockquote><code>ParticleEngine engine = new ParticleEngine(plugin, dispatcher);<br>
+ * engine.play(player, location, Shape.circle(2, 40), data, 100, (frame, source, target) -> ...);</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class ParticleEngine {
+
+    private final Plugin plugin;
+    private final ParticleDispatcher dispatcher;
+    private final BukkitTask task;
+    private final List<Effect> effects = new ArrayList<>();
+    private final AtomicBoolean computing = new AtomicBoolean(false);
+
+    /**
+     * Constructor. Starts the engine task.
+     *
+     * @param plugin     The plugin
+     * @param dispatcher The dispatcher used to send particles
+     */
+    public ParticleEngine(@NotNull Plugin plugin, @NotNull ParticleDispatcher dispatcher) {
+        this.plugin = plugin;
+        this.dispatcher = dispatcher;
+        this.task = Task.create(plugin).repeat(1).execute(this::tick).run();
+    }
+
+    /**
+     * Plays a shape. Must be called on the main thread.
+     *
+     * @param owner     The owner of this effect, used in {@link #cancel(Object)}. Effects owned by a player are cancelled when the player leaves.
+     * @param origin    The location which the points are relative to
+     * @param shape     The shape
+     * @param data      The particle data
+     * @param lifetime  The amount of frames (ticks) to play. 0 or below plays the effect until it is cancelled.
+     * @param transform The function applied to the points of the shape every frame. May be null.
+     * @return the effect.
+     */
+    public <T> Effect play(@Nullable Object owner, @NotNull Location origin, @NotNull Shape shape,
+                           @NotNull ParticleData<T> data, int lifetime, @Nullable Transform transform) {
+        return play(new ShapeEffect<>(owner, origin, lifetime, shape, data, transform));
+    }
+
+    /**
+     * Plays an effect. Must be called on the main thread.
+     *
+     * @param effect The effect
+     * @return the effect.
+     */
+    public Effect play(@NotNull Effect effect) {
+        effects.add(effect);
+        return effect;
+    }
+
+    /**
+     * Cancels all effects of an owner.
+     *
+     * @param owner The owner
+     */
+    public void cancel(@NotNull Object owner) {
+        for (Effect effect : effects) {
+            if (owner.equals(effect.owner)) {
+                effect.cancel();
+            }
+        }
+    }
+
+    /**
+     * Stops the engine and cancels all effects.
+     */
+    public void stop() {
+        task.cancel();
+        effects.forEach(Effect::cancel);
+        effects.clear();
+    }
+
+    /**
+     * @return The amount of active effects.
+     */
+    public int size() {
+        return effects.size();
+    }
+
+    private void tick() {
+        if (!computing.compareAndSet(false, true)) { // last frame is still being computed
+            return;
+        }
+
+        effects.removeIf(effect -> effect.cancelled
+                || (effect.lifetime > 0 && effect.frame >= effect.lifetime)
+                || (effect.owner instanceof Player player && !player.isOnline()));
+
+        for (Effect effect : effects) {
+            if (effect.computed == effect.frame) {
+                effect.emit(dispatcher, effect.frame);
+                effect.frame++;
+            }
+        }
+
+        Effect[] toCompute = effects.toArray(new Effect[0]);
+        Task.create(plugin).async().execute(() -> {
+            try {
+                for (Effect effect : toCompute) {
+                    effect.compute(effect.frame);
+                    effect.computed = effect.frame;
+                }
+            } finally {
+                computing.set(false);
+            }
+        }).run();
+    }
+
+    /**
+     * Transforms the points of a shape each frame, e.g. to rotate or scale it.
+     */
+    @FunctionalInterface
+    public interface Transform {
+
+        /**
+         * Called asynchronously. Must write every transformed point to target.
+         *
+         * @param frame  The frame, starting at 0
+         * @param source The untransformed points, stored as x, y, z triples. Must not be modified.
+         * @param target The array to write the transformed points to, with the same length as source.
+         */
+        void apply(int frame, double[] source, double[] target);
+    }
+
+    /**
+     * An effect played by a {@link ParticleEngine}.
+     * {@link #compute(int)} is always called, and completed, before {@link #emit(ParticleDispatcher, int)} is called for the same frame.
+     */
+    public abstract static class Effect {
+
+        @Nullable
+        private final Object owner;
+        private final int lifetime;
+        private volatile boolean cancelled = false;
+        private volatile int computed = -1;
+        private int frame = 0;
+        protected volatile Location origin;
+
+        /**
+         * Constructor.
+         *
+         * @param owner    The owner of this effect. May be null.
+         * @param origin   The location which the points are relative to
+         * @param lifetime The amount of frames to play. 0 or below plays the effect until it is cancelled.
+         */
+        protected Effect(@Nullable Object owner, @NotNull Location origin, int lifetime) {
+            this.owner = owner;
+            this.origin = origin.clone();
+            this.lifetime = lifetime;
+        }
+
+        /**
+         * Computes the points of a frame. Called asynchronously.
+         *
+         * @param frame The frame
+         */
+        protected abstract void compute(int frame);
+
+        /**
+         * Sends the points of a frame. Called on the main thread.
+         *
+         * @param dispatcher The dispatcher
+         * @param frame      The frame
+         */
+        protected abstract void emit(ParticleDispatcher dispatcher, int frame);
+
+        /**
+         * Cancels this effect. It will be removed next tick.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Moves this effect.
+         *
+         * @param origin The new location which the points are relative to
+         */
+        public void origin(@NotNull Location origin) {
+            this.origin = origin.clone();
+        }
+
+        /**
+         * @return True if this effect has been cancelled, false if not.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return The owner of this effect. May be null.
+         */
+        public @Nullable Object getOwner() {
+            return owner;
+        }
+    }
+
+    // plays a shape, with a buffer per frame parity so computing the next frame doesn't overwrite the one being sent
+    private static class ShapeEffect<T> extends Effect {
+
+        private final Shape shape;
+        private final ParticleData<T> data;
+        @Nullable
+        private final Transform transform;
+        private final double[][] buffers;
+
+        public ShapeEffect(@Nullable Object owner, Location origin, int lifetime, Shape shape, ParticleData<T> data, @Nullable Transform transform) {
+            super(owner, origin, lifetime);
+            this.shape = shape;
+            this.data = data;
+            this.transform = transform;
+            this.buffers = transform == null ? null : new double[][]{
+                    new double[shape.getPoints().length], new double[shape.getPoints().length]};
+        }
+
+        @Override
+        protected void compute(int frame) {
+            if (transform != null) {
+                transform.apply(frame, shape.getPoints(), buffers[frame & 1]);
+            }
+        }
+
+        @Override
+        protected void emit(ParticleDispatcher dispatcher, int frame) {
+            dispatcher.draw(origin, transform == null ? shape.getPoints() : buffers[frame & 1], shape.size(), data);
+        }
+    }
+}
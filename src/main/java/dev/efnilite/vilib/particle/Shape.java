@@ -0,0 +1,322 @@
+package dev.efnilite.vilib.particle;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A precomputed particle shape. Every point is stored as an offset relative to the location it is drawn at,
+ * so drawing a shape only has to translate and spawn each point.
+ * Shapes which don't depend on where they are drawn, such as circles and boxes, are cached by their parameters,
+ * so drawing the same shape every tick doesn't recompute it. The cache keeps the most recently used shapes.
+ * Lines depend on the positions of both ends, so most are only drawn once and they aren't cached.
+ * Keep a line to draw it again.
+ * <p>Example:</p>
+ * <blockquote><code>Shape.circle(2, 40).draw(player.getLocation(), data);</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public final class Shape {
+
+    /**
+     * The max amount of cached shapes. When the cache is full, the least recently used shape is removed.
+     */
+    public static final int MAX_CACHED = 1024;
+
+    private static final int STRIPES = 16;
+
+    /**
+     * The cached shapes, by parameters. Each stripe is an LRU map with its own lock,
+     * so threads drawing different shapes rarely wait on each other.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Map<Key, Shape>[] cache = new Map[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            cache[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Shape> eldest) {
+                    return size() > MAX_CACHED / STRIPES;
+                }
+            };
+        }
+    }
+
+    private final double[] points;
+
+    private Shape(double[] points) {
+        this.points = points;
+    }
+
+    /**
+     * Creates a shape from offsets.
+     *
+     * @param points The offsets, stored as x, y, z triples.
+     * @return a new shape. This shape isn't cached.
+     */
+    public static Shape of(double @NotNull ... points) {
+        if (points.length % 3 != 0) {
+            throw new IllegalArgumentException("Points must be x, y, z triples");
+        }
+
+        return new Shape(points.clone());
+    }
+
+    /**
+     * A line from (0, 0, 0) to (dx, dy, dz).
+     *
+     * @param dx              The x offset of the end
+     * @param dy              The y offset of the end
+     * @param dz              The z offset of the end
+     * @param distanceBetween The distance between particles in blocks, above 0
+     * @return the line. This shape isn't cached.
+     */
+    public static Shape line(double dx, double dy, double dz, double distanceBetween) {
+        checkDistance(distanceBetween);
+
+        PointBuffer buffer = new PointBuffer();
+        line(buffer, 0, 0, 0, dx, dy, dz, distanceBetween);
+        return new Shape(buffer.toArray());
+    }
+
+    /**
+     * The edges of a box from (0, 0, 0) to (widthX, height, widthZ).
+     *
+     * @param widthX          The width on the x-axis
+     * @param height          The height
+     * @param widthZ          The width on the z-axis
+     * @param distanceBetween The distance between particles in blocks, above 0
+     * @return the box.
+     */
+    public static Shape box(double widthX, double height, double widthZ, double distanceBetween) {
+        checkDistance(distanceBetween);
+
+        return get(new Key("box", widthX, height, widthZ, distanceBetween), () -> {
+            PointBuffer buffer = new PointBuffer();
+            for (int y = 0; y <= 1; y++) { // bottom and top
+                double h = y * height;
+                line(buffer, 0, h, 0, widthX, h, 0, distanceBetween);
+                line(buffer, widthX, h, 0, widthX, h, widthZ, distanceBetween);
+                line(buffer, widthX, h, widthZ, 0, h, widthZ, distanceBetween);
+                line(buffer, 0, h, widthZ, 0, h, 0, distanceBetween);
+            }
+            line(buffer, 0, 0, 0, 0, height, 0, distanceBetween); // vertical edges
+            line(buffer, widthX, 0, 0, widthX, height, 0, distanceBetween);
+            line(buffer, widthX, 0, widthZ, widthX, height, widthZ, distanceBetween);
+            line(buffer, 0, 0, widthZ, 0, height, widthZ, distanceBetween);
+            return buffer.toArray();
+        });
+    }
+
+    /**
+     * A horizontal circle around (0, 0, 0).
+     *
+     * @param radius The radius of the circle
+     * @param amount The amount of particles
+     * @return the circle.
+     */
+    public static Shape circle(double radius, double amount) {
+        return get(new Key("circle", radius, amount, 0, 0), () -> {
+            PointBuffer buffer = new PointBuffer();
+            double increment = (2 * Math.PI) / amount;
+            for (int i = 0; i < amount; i++) {
+                double angle = i * increment;
+                buffer.add(radius * Math.cos(angle), 0, radius * Math.sin(angle));
+            }
+            return buffer.toArray();
+        });
+    }
+
+    /**
+     * A sphere around (0, 0, 0), with points evenly spread over its surface.
+     *
+     * @param radius The radius of the sphere
+     * @param amount The amount of particles
+     * @return the sphere.
+     */
+    public static Shape sphere(double radius, int amount) {
+        return get(new Key("sphere", radius, amount, 0, 0), () -> {
+            PointBuffer buffer = new PointBuffer();
+            double golden = Math.PI * (3 - Math.sqrt(5)); // golden angle
+            for (int i = 0; i < amount; i++) {
+                double y = amount == 1 ? 0 : 1 - (i / (double) (amount - 1)) * 2;
+                double r = Math.sqrt(1 - y * y);
+                double angle = golden * i;
+                buffer.add(radius * r * Math.cos(angle), radius * y, radius * r * Math.sin(angle));
+            }
+            return buffer.toArray();
+        });
+    }
+
+    /**
+     * A helix going up from (0, 0, 0).
+     *
+     * @param radius The radius of the helix
+     * @param height The height of the helix
+     * @param turns  The amount of full turns
+     * @param amount The amount of particles
+     * @return the helix.
+     */
+    public static Shape helix(double radius, double height, double turns, int amount) {
+        return get(new Key("helix", radius, height, turns, amount), () -> {
+            PointBuffer buffer = new PointBuffer();
+            for (int i = 0; i < amount; i++) {
+                double progress = amount == 1 ? 0 : i / (double) (amount - 1);
+                double angle = progress * turns * 2 * Math.PI;
+                buffer.add(radius * Math.cos(angle), progress * height, radius * Math.sin(angle));
+            }
+            return buffer.toArray();
+        });
+    }
+
+    /**
+     * The edges of a horizontal regular polygon around (0, 0, 0).
+     *
+     * @param radius          The distance from the center to each corner
+     * @param sides           The amount of sides
+     * @param distanceBetween The distance between particles in blocks, above 0
+     * @return the polygon.
+     */
+    public static Shape polygon(double radius, int sides, double distanceBetween) {
+        if (sides < 3) {
+            throw new IllegalArgumentException("A polygon must have at least 3 sides");
+        }
+        checkDistance(distanceBetween);
+
+        return get(new Key("polygon", radius, sides, distanceBetween, 0), () -> {
+            PointBuffer buffer = new PointBuffer();
+            double increment = (2 * Math.PI) / sides;
+            for (int i = 0; i < sides; i++) {
+                double from = i * increment;
+                double to = (i + 1) * increment;
+                line(buffer, radius * Math.cos(from), 0, radius * Math.sin(from),
+                        radius * Math.cos(to), 0, radius * Math.sin(to), distanceBetween);
+            }
+            return buffer.toArray();
+        });
+    }
+
+    /**
+     * Draws this shape for every player in the world.
+     *
+     * @param at   The location which all offsets are relative to
+     * @param data The particle data
+     */
+    public <T> void draw(@NotNull Location at, @NotNull ParticleData<T> data) {
+        World world = at.getWorld();
+        if (world == null) {
+            throw new NullPointerException("World is null (Shape#draw)");
+        }
+
+        double x = at.getX();
+        double y = at.getY();
+        double z = at.getZ();
+        for (int i = 0; i < points.length; i += 3) {
+            world.spawnParticle(data.getType(), x + points[i], y + points[i + 1], z + points[i + 2],
+                    data.getSize(), data.getOffsetX(), data.getOffsetY(), data.getOffsetZ(), data.getSpeed(), data.getData());
+        }
+    }
+
+    /**
+     * Draws this shape for a single player.
+     *
+     * @param at     The location which all offsets are relative to
+     * @param data   The particle data
+     * @param player The player
+     */
+    public <T> void draw(@NotNull Location at, @NotNull ParticleData<T> data, @NotNull Player player) {
+        double x = at.getX();
+        double y = at.getY();
+        double z = at.getZ();
+        for (int i = 0; i < points.length; i += 3) {
+            player.spawnParticle(data.getType(), x + points[i], y + points[i + 1], z + points[i + 2],
+                    data.getSize(), data.getOffsetX(), data.getOffsetY(), data.getOffsetZ(), data.getSpeed(), data.getData());
+        }
+    }
+
+    /**
+     * Returns the offsets of this shape as x, y, z triples. This array is shared, so it must not be modified.
+     *
+     * @return the offsets.
+     */
+    public double[] getPoints() {
+        return points;
+    }
+
+    /**
+     * @return The amount of points in this shape.
+     */
+    public int size() {
+        return points.length / 3;
+    }
+
+    private static Shape get(Key key, Supplier<double[]> compiler) {
+        Map<Key, Shape> stripe = cache[(key.hashCode() & 0x7FFFFFFF) % STRIPES];
+
+        Shape shape;
+        synchronized (stripe) {
+            shape = stripe.get(key);
+        }
+        if (shape != null) {
+            return shape;
+        }
+
+        shape = new Shape(compiler.get()); // compute outside the lock
+        synchronized (stripe) {
+            stripe.putIfAbsent(key, shape);
+        }
+        return shape;
+    }
+
+    private static void checkDistance(double distanceBetween) {
+        if (!(distanceBetween > 0) || Double.isInfinite(distanceBetween)) { // also rejects NaN
+            throw new IllegalArgumentException("Distance between particles must be above 0");
+        }
+    }
+
+    // adds the points of a line to buffer, including the end point
+    private static void line(PointBuffer buffer, double x1, double y1, double z1, double x2, double y2, double z2, double distanceBetween) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double dz = z2 - z1;
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        int steps = (int) Math.ceil(length / distanceBetween);
+        for (int i = 0; i < steps; i++) {
+            double progress = (i * distanceBetween) / length;
+            buffer.add(x1 + dx * progress, y1 + dy * progress, z1 + dz * progress);
+        }
+        buffer.add(x2, y2, z2);
+    }
+
+    private record Key(String type, double a, double b, double c, double d) {
+
+    }
+
+    // growable array of x, y, z triples
+    private static class PointBuffer {
+
+        private double[] points = new double[48];
+        private int size = 0;
+
+        public void add(double x, double y, double z) {
+            if (size + 3 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[size++] = x;
+            points[size++] = y;
+            points[size++] = z;
+        }
+
+        public double[] toArray() {
+            return Arrays.copyOf(points, size);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package dev.efnilite.vilib.schematic;
 
+import dev.efnilite.vilib.schematic.io.SchematicBaker;
 import dev.efnilite.vilib.schematic.io.SchematicPaster;
 import dev.efnilite.vilib.schematic.io.SchematicReader;
 import dev.efnilite.vilib.schematic.io.SchematicWriter;
+import dev.efnilite.vilib.util.Colls;
 import dev.efnilite.vilib.util.Task;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
@@ -16,6 +18,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -63,6 +66,23 @@ public class Schematic {
         return new SchematicPaster().paste(location, rotation, vectorBlockMap);
     }
 
+    /**
+     * Writes this schematic directly into the region files of a world folder.
+     * The world should not be loaded while baking.
+     *
+     * @param world The world folder.
+     * @param x     The smallest x coordinate.
+     * @param y     The smallest y coordinate.
+     * @param z     The smallest z coordinate.
+     * @see SchematicBaker
+     */
+    public void bake(File world, int x, int y, int z) throws IOException {
+        new SchematicBaker().bake(world, Colls.thread(vectorBlockMap)
+                .filter((vector, data) -> data != null)
+                .mapv((vector, data) -> data.getAsString())
+                .get(), x, y, z);
+    }
+
     /**
      * @return The dimensions of this schematic.
      */
@@ -106,6 +126,27 @@ public class Schematic {
         return new Schematic(file, plugin);
     }
 
+    /**
+     * Loads a schematic on the I/O executor.
+     *
+     * @param file The file.
+     * @return A future which completes with the new {@link Schematic} instance.
+     * @see Task#ioExecutor()
+     */
+    public static CompletableFuture<Schematic> loadAsync(File file, Plugin plugin) {
+        CompletableFuture<Schematic> future = new CompletableFuture<>();
+
+        Task.ioExecutor().execute(() -> {
+            try {
+                future.complete(new Schematic(file, plugin));
+            } catch (IOException | ClassNotFoundException ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+
+        return future;
+    }
+
     /**
      * Loads a schematic asynchronously.
      *
@@ -135,6 +176,6 @@ public class Schematic {
      * @param pos2 The second position.
      */
     public static void save(File file, Location pos1, Location pos2, Plugin plugin) {
-        Task.create(plugin).async().execute(() -> new SchematicWriter().save(file, pos1, pos2, plugin)).run();
+        Task.create(plugin).io().execute(() -> new SchematicWriter().save(file, pos1, pos2, plugin)).run();
     }
 }
@@ -5,10 +5,9 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class Schematics {
 
@@ -17,8 +16,19 @@ public class Schematics {
     public static void addFromFiles(@NotNull Plugin plugin, @NotNull File... files) throws IOException, ClassNotFoundException {
         Map<String, Schematic> current = cache.getOrDefault(plugin, new HashMap<>());
 
-        for (File file : files) {
-            current.put(file.getName(), Schematic.load(file, plugin));
+        Map<String, CompletableFuture<Schematic>> loading = new LinkedHashMap<>();
+        for (File file : files) { // read all files at the same time
+            loading.put(file.getName(), Schematic.loadAsync(file, plugin));
+        }
+
+        for (Map.Entry<String, CompletableFuture<Schematic>> entry : loading.entrySet()) {
+            try {
+                current.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof IOException io) throw io;
+                if (ex.getCause() instanceof ClassNotFoundException cnf) throw cnf;
+                throw ex;
+            }
         }
 
         cache.put(plugin, current);
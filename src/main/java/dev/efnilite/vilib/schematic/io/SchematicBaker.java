@@ -0,0 +1,329 @@
+package dev.efnilite.vilib.schematic.io;
+
+import org.bukkit.util.Vector;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes schematics directly into Anvil region files (.mca), without a running server.
+ * The resulting world folder should be loaded using {@link dev.efnilite.vilib.util.VoidGenerator},
+ * so every chunk which isn't written here stays empty. Light is calculated by the server when a chunk is first loaded.
+ * <p>Example:</p>
+ * <blockquote><code>new SchematicBaker().bake(new File("arena"), new File("arena.schematic"), 0, 64, 0);</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class SchematicBaker {
+
+    /**
+     * The data version of Minecraft 1.20.4.
+     */
+    public static final int DATA_VERSION = 3700;
+
+    /**
+     * The lowest section in the overworld since 1.18, which is y = -64.
+     */
+    public static final int MIN_SECTION = -4;
+
+    private static final String AIR = "minecraft:air";
+    private static final String BIOME = "minecraft:plains";
+    private static final int SECTOR_SIZE = 4096;
+
+    private final int dataVersion;
+    private final int minSection;
+
+    public SchematicBaker() {
+        this(DATA_VERSION, MIN_SECTION);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dataVersion The data version of the Minecraft version the world will be loaded in.
+     * @param minSection  The lowest section of the world, which is the min height divided by 16.
+     */
+    public SchematicBaker(int dataVersion, int minSection) {
+        this.dataVersion = dataVersion;
+        this.minSection = minSection;
+    }
+
+    /**
+     * Bakes a schematic file into the region files of a world folder.
+     *
+     * @param world     The world folder.
+     * @param schematic The schematic file.
+     * @param x         The smallest x coordinate of the schematic.
+     * @param y         The smallest y coordinate of the schematic.
+     * @param z         The smallest z coordinate of the schematic.
+     * @see #bake(File, Map, int, int, int)
+     */
+    public void bake(File world, File schematic, int x, int y, int z) throws IOException, ClassNotFoundException {
+        bake(world, new SchematicReader().readRaw(schematic), x, y, z);
+    }
+
+    /**
+     * Bakes blocks into the region files of a world folder. Region files are written in parallel.
+     * Existing region files which contain any of the blocks are replaced.
+     *
+     * @param world  The world folder.
+     * @param blocks The map of offsets to block state strings, e.g. <code>minecraft:oak_stairs[facing=east]</code>.
+     * @param x      The smallest x coordinate of the blocks.
+     * @param y      The smallest y coordinate of the blocks.
+     * @param z      The smallest z coordinate of the blocks.
+     */
+    public void bake(File world, Map<Vector, String> blocks, int x, int y, int z) throws IOException {
+        // region -> chunk -> section y -> block states
+        Map<Long, Map<Long, Map<Integer, String[]>>> regions = new HashMap<>();
+
+        blocks.forEach((offset, state) -> {
+            if (state == null) {
+                return;
+            }
+
+            int bx = x + offset.getBlockX();
+            int by = y + offset.getBlockY();
+            int bz = z + offset.getBlockZ();
+
+            String[] section = regions
+                    .computeIfAbsent(pack(bx >> 9, bz >> 9), k -> new HashMap<>())
+                    .computeIfAbsent(pack(bx >> 4, bz >> 4), k -> new HashMap<>())
+                    .computeIfAbsent(by >> 4, k -> new String[4096]);
+
+            section[((by & 15) << 8) | ((bz & 15) << 4) | (bx & 15)] = state;
+        });
+
+        File folder = new File(world, "region");
+        Files.createDirectories(folder.toPath());
+
+        try {
+            regions.entrySet().parallelStream().forEach(entry -> {
+                int rx = (int) (entry.getKey() >> 32);
+                int rz = (int) (long) entry.getKey();
+
+                try {
+                    writeRegion(new File(folder, "r.%d.%d.mca".formatted(rx, rz)), entry.getValue());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // writes all chunks to a region file: an 8 KiB header followed by the compressed chunks, aligned to 4 KiB sectors
+    private void writeRegion(File file, Map<Long, Map<Integer, String[]>> chunks) throws IOException {
+        int[] locations = new int[1024];
+        int[] timestamps = new int[1024];
+        int timestamp = (int) (System.currentTimeMillis() / 1000);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int sector = 2; // the header takes 2 sectors
+
+        for (Map.Entry<Long, Map<Integer, String[]>> entry : chunks.entrySet()) {
+            int cx = (int) (entry.getKey() >> 32);
+            int cz = (int) (long) entry.getKey();
+
+            byte[] data = compress(writeChunk(cx, cz, entry.getValue()));
+
+            int length = data.length + 5; // length int and compression type byte
+            int sectors = (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+            if (sectors > 255) {
+                throw new IOException("Chunk %d, %d is too large to store in a region file".formatted(cx, cz));
+            }
+
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeInt(data.length + 1);
+            out.writeByte(2); // zlib
+            out.write(data);
+            out.write(new byte[sectors * SECTOR_SIZE - length]);
+
+            int index = (cx & 31) + (cz & 31) * 32;
+            locations[index] = (sector << 8) | sectors;
+            timestamps[index] = timestamp;
+            sector += sectors;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            for (int location : locations) {
+                out.writeInt(location);
+            }
+            for (int time : timestamps) {
+                out.writeInt(time);
+            }
+            body.writeTo(out);
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    // writes the chunk in the NBT format used since 1.18
+    private byte[] writeChunk(int cx, int cz, Map<Integer, String[]> sections) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Nbt nbt = new Nbt(new DataOutputStream(bytes));
+
+        nbt.compound("");
+        nbt.intTag("DataVersion", dataVersion);
+        nbt.intTag("xPos", cx);
+        nbt.intTag("zPos", cz);
+        nbt.intTag("yPos", minSection);
+        nbt.string("Status", "minecraft:full");
+        nbt.longTag("LastUpdate", 0);
+        nbt.longTag("InhabitedTime", 0);
+        nbt.byteTag("isLightOn", 0); // makes the server calculate light
+
+        nbt.list("sections", Nbt.COMPOUND, sections.size());
+        for (Map.Entry<Integer, String[]> entry : sections.entrySet()) {
+            writeSection(nbt, entry.getKey(), entry.getValue());
+        }
+
+        nbt.list("block_entities", Nbt.END, 0);
+        nbt.end();
+
+        return bytes.toByteArray();
+    }
+
+    private void writeSection(Nbt nbt, int y, String[] states) throws IOException {
+        Map<String, Integer> palette = new LinkedHashMap<>();
+        palette.put(AIR, 0);
+
+        int[] indices = new int[states.length];
+        for (int i = 0; i < states.length; i++) {
+            String state = states[i];
+            indices[i] = state == null ? 0 : palette.computeIfAbsent(state, k -> palette.size());
+        }
+
+        nbt.byteTag("Y", y);
+
+        nbt.compound("block_states");
+        nbt.list("palette", Nbt.COMPOUND, palette.size());
+        for (String state : palette.keySet()) {
+            writeState(nbt, state);
+        }
+        if (palette.size() > 1) {
+            nbt.longArray("data", pack(indices, Math.max(4, 32 - Integer.numberOfLeadingZeros(palette.size() - 1))));
+        }
+        nbt.end();
+
+        nbt.compound("biomes");
+        nbt.list("palette", Nbt.STRING, 1);
+        nbt.value(BIOME);
+        nbt.end();
+
+        nbt.end();
+    }
+
+    // writes a block state string like minecraft:oak_stairs[facing=east,half=bottom] as a palette entry
+    private void writeState(Nbt nbt, String state) throws IOException {
+        int bracket = state.indexOf('[');
+        String name = bracket == -1 ? state : state.substring(0, bracket);
+
+        nbt.string("Name", name.contains(":") ? name : "minecraft:" + name);
+
+        if (bracket != -1) {
+            nbt.compound("Properties");
+            for (String property : state.substring(bracket + 1, state.length() - 1).split(",")) {
+                String[] parts = property.split("=", 2);
+                nbt.string(parts[0].trim(), parts[1].trim());
+            }
+            nbt.end();
+        }
+
+        nbt.end();
+    }
+
+    // packs palette indices into longs, entries don't span multiple longs
+    private long[] pack(int[] indices, int bits) {
+        int perLong = 64 / bits;
+        long[] data = new long[(indices.length + perLong - 1) / perLong];
+
+        for (int i = 0; i < indices.length; i++) {
+            data[i / perLong] |= (long) indices[i] << ((i % perLong) * bits);
+        }
+
+        return data;
+    }
+
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Minimal NBT writer. Named tags are written for compounds, list elements with {@link #value(String)}.
+     */
+    private record Nbt(DataOutputStream out) {
+
+        private static final int END = 0;
+        private static final int BYTE = 1;
+        private static final int INT = 3;
+        private static final int LONG = 4;
+        private static final int STRING = 8;
+        private static final int LIST = 9;
+        private static final int COMPOUND = 10;
+        private static final int LONG_ARRAY = 12;
+
+        private void name(int type, String name) throws IOException {
+            out.writeByte(type);
+            out.writeUTF(name);
+        }
+
+        public void compound(String name) throws IOException {
+            name(COMPOUND, name);
+        }
+
+        public void end() throws IOException {
+            out.writeByte(END);
+        }
+
+        public void byteTag(String name, int value) throws IOException {
+            name(BYTE, name);
+            out.writeByte(value);
+        }
+
+        public void intTag(String name, int value) throws IOException {
+            name(INT, name);
+            out.writeInt(value);
+        }
+
+        public void longTag(String name, long value) throws IOException {
+            name(LONG, name);
+            out.writeLong(value);
+        }
+
+        public void string(String name, String value) throws IOException {
+            name(STRING, name);
+            out.writeUTF(value);
+        }
+
+        public void list(String name, int type, int size) throws IOException {
+            name(LIST, name);
+            out.writeByte(type);
+            out.writeInt(size);
+        }
+
+        public void longArray(String name, long[] values) throws IOException {
+            name(LONG_ARRAY, name);
+            out.writeInt(values.length);
+            for (long value : values) {
+                out.writeLong(value);
+            }
+        }
+
+        public void value(String value) throws IOException {
+            out.writeUTF(value);
+        }
+    }
+}
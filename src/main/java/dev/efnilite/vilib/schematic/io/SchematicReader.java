@@ -52,6 +52,26 @@ public class SchematicReader {
         }
     }
 
+    /**
+     * Reads the blocks in a schematic as block state strings, e.g. <code>minecraft:oak_stairs[facing=east]</code>.
+     * As opposed to {@link #read(File, Plugin)}, this doesn't require a running server.
+     *
+     * @param file The file.
+     * @return A map of offsets to block state strings.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Vector, String> readRaw(File file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream stream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            var version = (int) stream.readObject();
+            var palette = (Map<String, Integer>) stream.readObject();
+            var offsets = (Map<String, Integer>) stream.readObject();
+
+            Map<Integer, String> paletteRef = Colls.thread(palette).inverse().get();
+
+            return Colls.thread(offsets).mapkv(this::fromString, paletteRef::get).get();
+        }
+    }
+
     private Vector fromString(String string) {
         String[] parts = string.split(",");
         return new Vector(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
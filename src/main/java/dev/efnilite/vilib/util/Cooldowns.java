@@ -1,12 +1,16 @@
 package dev.efnilite.vilib.util;
 
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for handling cooldowns. Cooldowns are stored by key (and optionally by player).
@@ -21,10 +25,143 @@ import java.util.Objects;
  * <blockquote><code>if (!canPerform(player, "right click wand", 1000)) { return; }</code></blockquote>
  * <p>In the above example, the {@code return} statement will be executed when the player has performed the action {@code "right click wand"}
  * in the last 1000 ms (1 second). If the action was last performed more than 1000 ms ago, the {@code return} statement will not be called.</p>
+ * <p>All methods are safe to call from any thread. Entries are stored by the bits of the player's UUID and an id per key,
+ * in {@value #STRIPES} separately locked open-addressing tables, so checking a cooldown doesn't allocate.
+ * Entries are kept for the longest cooldown which has been used with their key, so checking with a longer cooldown
+ * than before still sees earlier uses, unless they were removed before the longer cooldown was first used.
+ * After that, the entry is no longer needed and is removed by a sweep.
+ * Each table is swept at most once every {@value #SWEEP_INTERVAL} ms, and only when its earliest expiry has passed.
+ * Keys without entries are forgotten, unless their id has been requested with {@link #getKeyId(String)}.</p>
+ * <p>Long cooldowns can be kept across restarts with {@link #persist(Plugin, File, int)}. Changed entries are appended
+ * to a binary log asynchronously, and the log is compacted to only the live entries when it has grown too large.</p>
  */
 public class Cooldowns {
 
-    private static final Map<String, Long> EXECUTION_TIMES = new HashMap<>();
+    /**
+     * The amount of separately locked tables.
+     */
+    public static final int STRIPES = 16;
+
+    /**
+     * The min time between sweeps of a single table in ms.
+     */
+    public static final long SWEEP_INTERVAL = 1000;
+
+    /**
+     * The min cooldown in ms of entries which are persisted.
+     */
+    public static final long MIN_PERSISTED_COOLDOWN = 60 * 1000;
+
+    private static final int MAGIC = 0x56494344; // VICD
+    private static final int FORMAT_VERSION = 1;
+    private static final byte KEY_RECORD = 1;
+    private static final byte ENTRY_RECORD = 2;
+
+    private static final int MIN_KEY_LIMIT = 256;
+
+    private static final Map<String, Key> KEYS = new ConcurrentHashMap<>();
+    private static final Object KEY_LOCK = new Object();
+    private static final Object PERSIST_LOCK = new Object();
+    private static final Stripe[] STRIPE_TABLES = new Stripe[STRIPES];
+
+    // keys, written while holding KEY_LOCK. Ids of forgotten keys are reused
+    private static volatile Key[] keysById = new Key[16];
+    private static final Deque<Integer> freeIds = new ArrayDeque<>();
+    private static int nextKeyId = 0;
+    private static int keyLimit = MIN_KEY_LIMIT; // amount of keys at which unused keys are forgotten
+
+    // persistence, guarded by PERSIST_LOCK
+    private static final Set<Key> writtenKeys = new HashSet<>();
+    private static File persistFile;
+    private static DataOutputStream persistOut;
+    private static volatile BukkitTask persistTask;
+    private static long appended = 0; // records since the last compaction
+    private static long compacted = 0; // records written by the last compaction
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            STRIPE_TABLES[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Returns the id of a key. Keys whose id has been requested are never forgotten, so their id never changes
+     * and callers can store the id to avoid looking up the key on every check.
+     * Only request ids of a fixed set of keys, since every key whose id has been requested is kept in memory.
+     *
+     * @param key The key by which the system can differentiate actions.
+     * @return the id of the key.
+     */
+    public static int getKeyId(@NotNull String key) {
+        Objects.requireNonNull(key);
+
+        synchronized (KEY_LOCK) {
+            Key found = getKey(key);
+            found.pinned = true;
+            return found.id;
+        }
+    }
+
+    // returns the key with this name, adding it if it doesn't exist
+    private static Key getKey(String name) {
+        Key key = KEYS.get(name);
+        if (key != null) {
+            return key;
+        }
+
+        synchronized (KEY_LOCK) {
+            key = KEYS.get(name);
+            if (key != null) {
+                return key;
+            }
+
+            if (KEYS.size() >= keyLimit) {
+                forgetUnusedKeys();
+            }
+
+            int id = freeIds.isEmpty() ? nextKeyId++ : freeIds.pop();
+            if (id >= keysById.length) {
+                keysById = Arrays.copyOf(keysById, keysById.length * 2);
+            }
+
+            key = new Key(id, name);
+            keysById[id] = key;
+            KEYS.put(name, key);
+            return key;
+        }
+    }
+
+    // forgets keys without entries whose id hasn't been requested. Must hold KEY_LOCK
+    private static void forgetUnusedKeys() {
+        BitSet used = new BitSet();
+        lockStripes(0, () -> {
+            for (Stripe stripe : STRIPE_TABLES) {
+                stripe.addKeys(used);
+            }
+
+            for (Key key : keysById) {
+                if (key != null && !key.pinned && !used.get(key.id)) {
+                    key.forgotten = true; // checks which looked up this key before it was forgotten look it up again
+                    keysById[key.id] = null;
+                    KEYS.remove(key.name);
+                    freeIds.push(key.id);
+                }
+            }
+        });
+        keyLimit = Math.max(MIN_KEY_LIMIT, KEYS.size() * 2);
+    }
+
+    // runs the runnable while holding the lock of every table, so no entries can be added
+    private static void lockStripes(int index, Runnable runnable) {
+        if (index == STRIPES) {
+            runnable.run();
+            return;
+        }
+
+        synchronized (STRIPE_TABLES[index]) {
+            lockStripes(index + 1, runnable);
+        }
+    }
 
     /**
      * Returns whether the provided action {@code key} can be performed with the provided cooldown {@code cooldown}.
@@ -44,24 +181,7 @@ public class Cooldowns {
     public static boolean canPerform(@NotNull String key, long cooldown) {
         Objects.requireNonNull(key);
 
-        Long lastTime = EXECUTION_TIMES.get(key);
-
-        // if no value has been previously registered, player is executing for the first time, so return true
-        if (lastTime == null) {
-            EXECUTION_TIMES.put(key, System.currentTimeMillis());
-            return true;
-        }
-
-        // get the difference between now and the last time the command was executed
-        long dt = System.currentTimeMillis() - lastTime;
-
-        // if the last time execution difference is higher than cooldown, allow execution
-        if (dt > cooldown) {
-            EXECUTION_TIMES.put(key, System.currentTimeMillis());
-            return true;
-        }
-
-        return false;
+        return canPerform(0, 0, key, cooldown);
     }
 
     /**
@@ -80,14 +200,54 @@ public class Cooldowns {
      */
     public static boolean canPerform(@NotNull Player player, @NotNull String key, long cooldown) {
         Objects.requireNonNull(player);
+
+        return canPerform(player.getUniqueId(), key, cooldown);
+    }
+
+    /**
+     * Returns whether the provided action {@code key}, belonging to the player with UUID {@code uuid}, can be performed
+     * with the provided cooldown {@code cooldown}.
+     *
+     * @param uuid     The UUID of the player.
+     * @param key      The key by which the system can differentiate actions.
+     * @param cooldown The cooldown in milliseconds.
+     * @return true if the action {@code key} was more than {@code cooldown} ms ago, false if not.
+     * @see #canPerform(Player, String, long)
+     */
+    public static boolean canPerform(@NotNull UUID uuid, @NotNull String key, long cooldown) {
+        Objects.requireNonNull(uuid);
         Objects.requireNonNull(key);
 
-        return canPerform(player.getUniqueId() + "-" + key, cooldown);
+        return canPerform(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), key, cooldown);
+    }
+
+    /**
+     * Returns whether the action with id {@code keyId}, belonging to the player with UUID {@code uuid}, can be performed
+     * with the provided cooldown {@code cooldown}.
+     *
+     * @param uuid     The UUID of the player.
+     * @param keyId    The id of the key, as returned by {@link #getKeyId(String)}.
+     * @param cooldown The cooldown in milliseconds.
+     * @return true if the action was more than {@code cooldown} ms ago, false if not.
+     * @see #canPerform(Player, String, long)
+     */
+    public static boolean canPerform(@NotNull UUID uuid, int keyId, long cooldown) {
+        Objects.requireNonNull(uuid);
+
+        Key[] keys = keysById;
+        Key key = keyId >= 0 && keyId < keys.length ? keys[keyId] : null;
+        if (key == null || !key.pinned) {
+            throw new IllegalArgumentException("Unknown key id %d".formatted(keyId));
+        }
+
+        // keys with a requested id are never forgotten
+        return Boolean.TRUE.equals(canPerform(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), key, cooldown));
     }
 
     /**
      * Returns the last registered execution time (in ms) of the specified string key. Can be null.
      * <strong>This method is only recommended to be used with global actions</strong>, e.g. requiring no player.
+     * Entries are removed once their cooldown has passed, after which this returns null.
      *
      * @param key The key by which the system can differentiate actions.
      * @return the last execution time (in ms) of the global action. Can be null.
@@ -96,12 +256,12 @@ public class Cooldowns {
     public static Long getLastExecutionTime(@NotNull String key) {
         Objects.requireNonNull(key);
 
-        return EXECUTION_TIMES.get(key);
+        return getLastExecutionTime(0, 0, key);
     }
 
     /**
      * Returns the last registered execution time (in ms) of the specified string key that's associated to the provided player.
-     * Can be null.
+     * Entries are removed once their cooldown has passed, after which this returns null.
      *
      * @param player The player.
      * @param key    The key by which the system can differentiate actions.
@@ -110,9 +270,515 @@ public class Cooldowns {
     @Nullable
     public static Long getLastExecutionTime(@NotNull Player player, @NotNull String key) {
         Objects.requireNonNull(player);
+
+        return getLastExecutionTime(player.getUniqueId(), key);
+    }
+
+    /**
+     * Returns the last registered execution time (in ms) of the specified string key that's associated to the provided UUID.
+     * Entries are removed once their cooldown has passed, after which this returns null.
+     *
+     * @param uuid The UUID of the player.
+     * @param key  The key by which the system can differentiate actions.
+     * @return the last execution time (in ms) of the player. Can be null.
+     */
+    @Nullable
+    public static Long getLastExecutionTime(@NotNull UUID uuid, @NotNull String key) {
+        Objects.requireNonNull(uuid);
         Objects.requireNonNull(key);
 
-        return EXECUTION_TIMES.get(player.getUniqueId() + "-" + key);
+        return getLastExecutionTime(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), key);
     }
 
-}
\ No newline at end of file
+    /**
+     * Removes all entries whose cooldown has passed from every table, and forgets keys which no longer have entries.
+     */
+    public static void sweep() {
+        long now = System.currentTimeMillis();
+
+        for (Stripe stripe : STRIPE_TABLES) {
+            synchronized (stripe) {
+                stripe.sweep(now);
+            }
+        }
+
+        synchronized (KEY_LOCK) {
+            forgetUnusedKeys();
+        }
+    }
+
+    /**
+     * @return The amount of keys which are kept in memory.
+     */
+    public static int getKeyCount() {
+        return KEYS.size();
+    }
+
+    /**
+     * @return The amount of stored entries.
+     */
+    public static int size() {
+        int size = 0;
+        for (Stripe stripe : STRIPE_TABLES) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Keeps cooldowns of at least {@value #MIN_PERSISTED_COOLDOWN} ms across restarts.
+     * Loads all entries from file, then appends changed entries to file asynchronously every interval.
+     * Call {@link #save()} on disable to write the last changes.
+     *
+     * @param plugin   The plugin
+     * @param file     The file
+     * @param interval The interval between saves in ticks
+     */
+    public static void persist(@NotNull Plugin plugin, @NotNull File file, int interval) {
+        synchronized (PERSIST_LOCK) {
+            if (persistFile != null) {
+                throw new IllegalStateException("Cooldowns are already persisted to %s".formatted(persistFile));
+            }
+
+            try {
+                load(file);
+                persistFile = file;
+                compact();
+            } catch (IOException ex) {
+                persistFile = null;
+                throw new UncheckedIOException("Failed to load cooldowns from %s".formatted(file), ex);
+            }
+        }
+
+        persistTask = Task.create(plugin).io().delay(interval).repeat(interval).execute(() -> {
+            try {
+                flush();
+            } catch (IOException ex) {
+                plugin.getLogger().severe("Failed to save cooldowns: %s".formatted(ex.getMessage()));
+            }
+        }).run();
+    }
+
+    /**
+     * Writes all changes, compacts the file and stops saving. Blocks until the file has been written.
+     */
+    public static void save() throws IOException {
+        if (persistTask != null) {
+            persistTask.cancel();
+            persistTask = null;
+        }
+
+        synchronized (PERSIST_LOCK) {
+            if (persistFile == null) {
+                return;
+            }
+
+            compact();
+            persistOut.close();
+            persistOut = null;
+            persistFile = null;
+        }
+    }
+
+    // appends the changed entries, or compacts if the file has grown too large
+    private static void flush() throws IOException {
+        synchronized (PERSIST_LOCK) {
+            if (persistFile == null) {
+                return;
+            }
+
+            if (appended > 2 * Math.max(compacted, 1024)) {
+                compact();
+                return;
+            }
+
+            List<Saved> entries = collect(false);
+            for (Saved entry : entries) {
+                write(persistOut, entry);
+            }
+            persistOut.flush();
+            appended += entries.size();
+        }
+    }
+
+    // rewrites the file with only the live entries
+    private static void compact() throws IOException {
+        if (persistOut != null) {
+            persistOut.close();
+        }
+
+        File temp = new File(persistFile.getPath() + ".tmp");
+        writtenKeys.clear();
+
+        List<Saved> entries = collect(true);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            for (Saved entry : entries) {
+                write(out, entry);
+            }
+        }
+        Files.move(temp.toPath(), persistFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        persistOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(persistFile, true)));
+        compacted = entries.size();
+        appended = 0;
+    }
+
+    private static List<Saved> collect(boolean all) {
+        long now = System.currentTimeMillis();
+        List<Saved> entries = new ArrayList<>();
+
+        for (Stripe stripe : STRIPE_TABLES) {
+            synchronized (stripe) {
+                stripe.collect(entries, all, now);
+            }
+        }
+        return entries;
+    }
+
+    // writes an entry, preceded by its key if this is the first entry with the key.
+    // ids of forgotten keys are reused, so a reused id is written again with its new name, which replaces the old one
+    private static void write(DataOutputStream out, Saved entry) throws IOException {
+        if (writtenKeys.add(entry.key())) {
+            out.writeByte(KEY_RECORD);
+            out.writeInt(entry.key().id);
+            out.writeUTF(entry.key().name);
+        }
+
+        out.writeByte(ENTRY_RECORD);
+        out.writeLong(entry.msb());
+        out.writeLong(entry.lsb());
+        out.writeInt(entry.key().id);
+        out.writeLong(entry.time());
+        out.writeLong(entry.expiry());
+    }
+
+    // reads all records, where later entries replace earlier ones. A record cut off by a crash is ignored.
+    private static void load(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<Integer, String> keys = new HashMap<>(); // id in file -> name
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cooldowns file");
+            }
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported cooldowns file version");
+            }
+
+            while (true) {
+                int type = in.read();
+                if (type == -1) {
+                    break;
+                }
+
+                if (type == KEY_RECORD) {
+                    int id = in.readInt();
+                    keys.put(id, in.readUTF());
+                } else if (type == ENTRY_RECORD) {
+                    long msb = in.readLong();
+                    long lsb = in.readLong();
+                    String key = keys.get(in.readInt());
+                    long time = in.readLong();
+                    long expiry = in.readLong();
+
+                    if (key == null) {
+                        throw new IOException("Entry with unknown key");
+                    }
+                    if (expiry > now) {
+                        put(msb, lsb, key, time, expiry);
+                    }
+                } else {
+                    throw new IOException("Unknown record type %d".formatted(type));
+                }
+            }
+        } catch (EOFException ignored) {
+            // last record was only partially written
+        }
+    }
+
+    private static void put(long msb, long lsb, String name, long time, long expiry) {
+        while (true) {
+            Key key = getKey(name);
+            long hash = hash(msb, lsb, key.id);
+            Stripe stripe = STRIPE_TABLES[(int) hash & (STRIPES - 1)];
+
+            synchronized (stripe) {
+                if (key.forgotten) { // look the key up again
+                    continue;
+                }
+
+                key.retain(expiry - time);
+                int slot = stripe.find(hash, msb, lsb, key.id);
+                if (slot < 0) {
+                    stripe.insert(~slot, msb, lsb, key.id, time, expiry);
+                } else {
+                    stripe.update(slot, time, expiry);
+                }
+                return;
+            }
+        }
+    }
+
+    private static boolean canPerform(long msb, long lsb, String name, long cooldown) {
+        Boolean performed;
+        do {
+            performed = canPerform(msb, lsb, getKey(name), cooldown);
+        } while (performed == null);
+
+        return performed;
+    }
+
+    // returns null if the key was forgotten before the table was locked
+    private static Boolean canPerform(long msb, long lsb, Key key, long cooldown) {
+        long hash = hash(msb, lsb, key.id);
+        Stripe stripe = STRIPE_TABLES[(int) hash & (STRIPES - 1)];
+        long now = System.currentTimeMillis();
+
+        synchronized (stripe) {
+            if (key.forgotten) {
+                return null;
+            }
+
+            long retention = key.retain(cooldown);
+            if (now >= stripe.nextSweep && now >= stripe.earliestExpiry) {
+                stripe.sweep(now);
+            }
+
+            int slot = stripe.find(hash, msb, lsb, key.id);
+            if (slot < 0) {
+                stripe.insert(~slot, msb, lsb, key.id, now, now + retention);
+                return true;
+            }
+
+            // if the last time execution difference is higher than cooldown, allow execution
+            if (now - stripe.table[slot + TIME] > cooldown) {
+                stripe.update(slot, now, now + retention);
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    private static Long getLastExecutionTime(long msb, long lsb, String name) {
+        Key key = KEYS.get(name);
+        if (key == null) {
+            return null;
+        }
+
+        long hash = hash(msb, lsb, key.id);
+        Stripe stripe = STRIPE_TABLES[(int) hash & (STRIPES - 1)];
+
+        synchronized (stripe) {
+            if (key.forgotten) { // so it has no entries
+                return null;
+            }
+
+            int slot = stripe.find(hash, msb, lsb, key.id);
+
+            return slot < 0 ? null : stripe.table[slot + TIME];
+        }
+    }
+
+    private static long hash(long msb, long lsb, int keyId) {
+        long hash = msb * 0x9E3779B97F4A7C15L ^ lsb * 0xC2B2AE3D27D4EB4FL ^ keyId * 0x165667B19E3779F9L;
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ hash >>> 32;
+    }
+
+    // a key, of which forgotten is set while holding the lock of every table
+    private static class Key {
+
+        private final int id;
+        private final String name;
+        private volatile long retention = 0; // the longest cooldown used with this key
+        private volatile boolean pinned = false; // whether the id has been requested
+        private volatile boolean forgotten = false;
+
+        private Key(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        // returns the time for which entries of this key are kept, updated with the cooldown. Must hold the lock of a table
+        private long retain(long cooldown) {
+            long current = retention;
+            if (cooldown > current) {
+                retention = cooldown; // tables update retention one at a time, but a lower value may win the race
+                return cooldown;
+            }
+            return current;
+        }
+    }
+
+    // an entry which should be saved
+    private record Saved(long msb, long lsb, Key key, long time, long expiry) {
+
+    }
+
+    // fields of an entry, stored next to each other
+    private static final int MSB = 0;
+    private static final int LSB = 1;
+    private static final int KEY = 2; // key id + 1, 0 if the slot is empty
+    private static final int TIME = 3;
+    private static final int EXPIRY = 4;
+    private static final int DIRTY = 5; // 1 if changed since the last save
+    private static final int FIELDS = 6;
+
+    // an open-addressing table with linear probing, guarded by its own monitor
+    private static class Stripe {
+
+        private long[] table = new long[16 * FIELDS];
+        private int capacity = 16;
+        private int size = 0;
+        private long earliestExpiry = Long.MAX_VALUE;
+        private long nextSweep = 0;
+
+        // returns the offset of the entry, or the inverted offset of the empty slot where it would be inserted
+        private int find(long hash, long msb, long lsb, int keyId) {
+            int mask = capacity - 1;
+            int index = (int) (hash >>> 32) & mask;
+
+            while (true) {
+                int slot = index * FIELDS;
+                long key = table[slot + KEY];
+
+                if (key == 0) {
+                    return ~slot;
+                }
+                if (key == keyId + 1L && table[slot + MSB] == msb && table[slot + LSB] == lsb) {
+                    return slot;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void insert(int slot, long msb, long lsb, int keyId, long time, long expiry) {
+            table[slot + MSB] = msb;
+            table[slot + LSB] = lsb;
+            table[slot + KEY] = keyId + 1L;
+            table[slot + TIME] = time;
+            table[slot + EXPIRY] = expiry;
+            table[slot + DIRTY] = 1;
+            earliestExpiry = Math.min(earliestExpiry, expiry);
+
+            if (++size * 2 > capacity) {
+                resize(capacity * 2);
+            }
+        }
+
+        private void update(int slot, long time, long expiry) {
+            table[slot + TIME] = time;
+            table[slot + EXPIRY] = expiry;
+            table[slot + DIRTY] = 1;
+            earliestExpiry = Math.min(earliestExpiry, expiry);
+        }
+
+        // adds the entries which should be saved to entries, and marks them as saved
+        private void collect(List<Saved> entries, boolean all, long now) {
+            for (int slot = 0; slot < table.length; slot += FIELDS) {
+                if (table[slot + KEY] == 0 || (!all && table[slot + DIRTY] == 0)) {
+                    continue;
+                }
+
+                table[slot + DIRTY] = 0;
+                long expiry = getExpiry(slot);
+                if (expiry > now && expiry - table[slot + TIME] >= MIN_PERSISTED_COOLDOWN) {
+                    entries.add(new Saved(table[slot + MSB], table[slot + LSB], keysById[(int) (table[slot + KEY] - 1)],
+                            table[slot + TIME], expiry));
+                }
+            }
+        }
+
+        // marks the keys which have entries in this table
+        private void addKeys(BitSet keys) {
+            for (int slot = 0; slot < table.length; slot += FIELDS) {
+                if (table[slot + KEY] != 0) {
+                    keys.set((int) (table[slot + KEY] - 1));
+                }
+            }
+        }
+
+        // the expiry of an entry, extended if its key has since been used with a longer cooldown
+        private long getExpiry(int slot) {
+            Key key = keysById[(int) (table[slot + KEY] - 1)];
+
+            return Math.max(table[slot + EXPIRY], table[slot + TIME] + key.retention);
+        }
+
+        // removes expired entries by rebuilding the table, if there are any
+        private void sweep(long now) {
+            nextSweep = (now / SWEEP_INTERVAL + 1) * SWEEP_INTERVAL; // start of the next bucket
+
+            // expiries may have been extended by a longer cooldown, so only rebuild if entries have actually expired
+            int expired = 0;
+            long earliest = Long.MAX_VALUE;
+            for (int slot = 0; slot < table.length; slot += FIELDS) {
+                if (table[slot + KEY] == 0) {
+                    continue;
+                }
+
+                long expiry = getExpiry(slot);
+                table[slot + EXPIRY] = expiry;
+                if (expiry < now) {
+                    expired++;
+                } else {
+                    earliest = Math.min(earliest, expiry);
+                }
+            }
+
+            if (expired == 0) {
+                earliestExpiry = earliest;
+                return;
+            }
+
+            int capacity = this.capacity;
+            while (capacity > 16 && (size - expired) * 8 < capacity) { // shrink when mostly empty
+                capacity /= 2;
+            }
+            rebuild(capacity, now);
+        }
+
+        private void resize(int capacity) {
+            rebuild(capacity, Long.MIN_VALUE);
+        }
+
+        private void rebuild(int capacity, long now) {
+            long[] old = table;
+            table = new long[capacity * FIELDS];
+            this.capacity = capacity;
+            size = 0;
+            earliestExpiry = Long.MAX_VALUE;
+
+            for (int slot = 0; slot < old.length; slot += FIELDS) {
+                if (old[slot + KEY] == 0) {
+                    continue;
+                }
+
+                long expiry = Math.max(old[slot + EXPIRY], old[slot + TIME] + keysById[(int) (old[slot + KEY] - 1)].retention);
+                if (expiry < now) {
+                    continue;
+                }
+
+                long msb = old[slot + MSB];
+                long lsb = old[slot + LSB];
+                int keyId = (int) (old[slot + KEY] - 1);
+                int target = ~find(hash(msb, lsb, keyId), msb, lsb, keyId);
+
+                System.arraycopy(old, slot, table, target, FIELDS);
+                table[target + EXPIRY] = expiry;
+                earliestExpiry = Math.min(earliestExpiry, expiry);
+                size++;
+            }
+        }
+    }
+}
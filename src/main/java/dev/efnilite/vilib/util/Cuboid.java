@@ -1,7 +1,10 @@
 package dev.efnilite.vilib.util;
 
+import dev.efnilite.vilib.schematic.Schematic;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.type.Fence;
@@ -12,7 +15,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Asynchronously gets the {@link Block} instances between the two specified {@link Location} instances.
@@ -25,6 +30,9 @@ public class Cuboid {
      */
     public static final int CHANGES_PER_TICK = 2500;
 
+    // the hash of each block state, used to avoid calling getAsString for every block
+    private static final Map<BlockData, Long> STATE_HASHES = new ConcurrentHashMap<>();
+
     /**
      * Sets blocks in <code>blocks</code> to their respective {@link BlockData}.
      * Performs <code>onComplete</code> when block setting has finished.
@@ -33,9 +41,27 @@ public class Cuboid {
      * @param onComplete What to do on completion.
      */
     public static void set(@NotNull Map<Block, BlockData> blocks, Plugin plugin, @Nullable Runnable onComplete) {
+        set(blocks, plugin, null, onComplete);
+    }
+
+    /**
+     * Sets blocks in <code>blocks</code> to their respective {@link BlockData}.
+     * Performs <code>onComplete</code> when block setting has finished.
+     * Setting can be stopped early using {@link Task#cancelAll(Object)} with the owner, in which case <code>onComplete</code> isn't performed.
+     *
+     * @param blocks     The block map.
+     * @param owner      The owner of the task, such as an arena. May be null.
+     * @param onComplete What to do on completion.
+     */
+    public static void set(@NotNull Map<Block, BlockData> blocks, Plugin plugin, @Nullable Object owner, @Nullable Runnable onComplete) {
         Queue<Block> queue = new LinkedList<>(blocks.keySet());
 
-        Task.create(plugin).repeat(1).execute(new BukkitRunnable() {
+        Task task = Task.create(plugin).repeat(1);
+        if (owner != null) {
+            task.owner(owner);
+        }
+
+        task.execute(new BukkitRunnable() {
             @Override
             public void run() {
                 for (int i = 0; i < CHANGES_PER_TICK; i++) {
@@ -107,4 +133,152 @@ public class Cuboid {
                                 Plugin plugin, @NotNull Consumer<List<Block>> onComplete) {
         Task.create(plugin).async().execute(() -> onComplete.accept(get(pos1, pos2, ignoreAir))).run();
     }
-}
\ No newline at end of file
+
+    /**
+     * Computes a hash of every chunk section (16x16x16 blocks) between the provided locations.
+     * Only the blocks inside the region are hashed, so blocks outside it never affect the result.
+     * Chunk snapshots are taken on the calling thread, which must be the main thread.
+     * The hashes are computed asynchronously and in parallel, after which <code>onComplete</code> is executed on the main thread.
+     *
+     * @param pos1       The first location
+     * @param pos2       The second location
+     * @param onComplete A {@link Consumer} with the hash of each section.
+     */
+    public static void hash(@NotNull Location pos1, @NotNull Location pos2, Plugin plugin,
+                            @NotNull Consumer<Map<Section, Long>> onComplete) {
+        World world = pos1.getWorld() == null ? pos2.getWorld() : pos1.getWorld();
+        if (world == null) {
+            throw new NullPointerException("World is null (Cuboid#hash)");
+        }
+
+        Location min = Locations.min(pos1, pos2);
+        Location max = Locations.max(pos1, pos2);
+
+        List<ChunkSnapshot> snapshots = new ArrayList<>();
+        for (int cx = min.getBlockX() >> 4; cx <= max.getBlockX() >> 4; cx++) {
+            for (int cz = min.getBlockZ() >> 4; cz <= max.getBlockZ() >> 4; cz++) {
+                snapshots.add(world.getChunkAt(cx, cz).getChunkSnapshot(false, false, false));
+            }
+        }
+
+        Task.create(plugin).async().execute(() -> {
+            Map<Section, Long> hashes = snapshots.parallelStream()
+                    .flatMap(snapshot -> getSections(min, max, snapshot.getX(), snapshot.getZ()).stream()
+                            .map(section -> Map.entry(section, hash(section, min, max,
+                                    (x, y, z) -> getHash(snapshot.getBlockData(x & 15, y, z & 15))))))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+            Task.create(plugin).execute(() -> onComplete.accept(hashes)).run();
+        }).run();
+    }
+
+    /**
+     * Computes the hash of every chunk section the provided schematic would occupy when pasted at <code>location</code>.
+     * Positions not contained in the schematic are hashed as air.
+     * The result can be stored as a baseline for {@link #changed(Location, Location, Map, Plugin, Consumer)}.
+     * This method doesn't access the world, so it can be called from any thread.
+     *
+     * @param schematic The schematic
+     * @param location  The smallest location, as used in {@link Schematic#paste(Location)}
+     * @return the hash of each section.
+     */
+    public static Map<Section, Long> hash(@NotNull Schematic schematic, @NotNull Location location) {
+        Map<Long, BlockData> blocks = new HashMap<>();
+        schematic.getVectorBlockMap().forEach((offset, data) -> blocks.put(pack(
+                location.getBlockX() + offset.getBlockX(),
+                location.getBlockY() + offset.getBlockY(),
+                location.getBlockZ() + offset.getBlockZ()), data));
+
+        Location min = location.clone();
+        Location max = location.clone().add(schematic.getDimensions());
+
+        Map<Section, Long> hashes = new HashMap<>();
+        for (int cx = min.getBlockX() >> 4; cx <= max.getBlockX() >> 4; cx++) {
+            for (int cz = min.getBlockZ() >> 4; cz <= max.getBlockZ() >> 4; cz++) {
+                for (Section section : getSections(min, max, cx, cz)) {
+                    hashes.put(section, hash(section, min, max, (x, y, z) -> getHash(blocks.get(pack(x, y, z)))));
+                }
+            }
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Compares the current state of the region between the provided locations to a baseline,
+     * as returned by {@link #hash(Schematic, Location)} or {@link #hash(Location, Location, Plugin, Consumer)}.
+     * Executes <code>onComplete</code> on the main thread with the sections that differ from the baseline.
+     * Sections without a baseline are always considered changed.
+     *
+     * @param pos1       The first location
+     * @param pos2       The second location
+     * @param baseline   The baseline hashes
+     * @param onComplete A {@link Consumer} with the changed sections. Empty when the region is unchanged.
+     */
+    public static void changed(@NotNull Location pos1, @NotNull Location pos2, @NotNull Map<Section, Long> baseline,
+                               Plugin plugin, @NotNull Consumer<Set<Section>> onComplete) {
+        hash(pos1, pos2, plugin, hashes -> onComplete.accept(hashes.entrySet().stream()
+                .filter(entry -> !entry.getValue().equals(baseline.get(entry.getKey())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet())));
+    }
+
+    // returns all sections of chunk (cx, cz) that overlap with the region between min and max
+    private static List<Section> getSections(Location min, Location max, int cx, int cz) {
+        List<Section> sections = new ArrayList<>();
+        for (int sy = min.getBlockY() >> 4; sy <= max.getBlockY() >> 4; sy++) {
+            sections.add(new Section(cx, sy, cz));
+        }
+        return sections;
+    }
+
+    // hashes all blocks in the part of the section that is inside the region, in a fixed order
+    private static long hash(Section section, Location min, Location max, BlockHasher hasher) {
+        int minX = Math.max(section.x() << 4, min.getBlockX());
+        int minY = Math.max(section.y() << 4, min.getBlockY());
+        int minZ = Math.max(section.z() << 4, min.getBlockZ());
+        int maxX = Math.min((section.x() << 4) + 15, max.getBlockX());
+        int maxY = Math.min((section.y() << 4) + 15, max.getBlockY());
+        int maxZ = Math.min((section.z() << 4) + 15, max.getBlockZ());
+
+        long hash = 0xcbf29ce484222325L; // FNV-1a offset basis
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    hash = (hash ^ hasher.hash(x, y, z)) * 0x100000001b3L;
+                }
+            }
+        }
+        return hash;
+    }
+
+    // returns a hash which is stable across restarts, as opposed to BlockData#hashCode
+    private static long getHash(@Nullable BlockData data) {
+        if (data == null || data.getMaterial().isAir()) {
+            return 0;
+        }
+
+        return STATE_HASHES.computeIfAbsent(data, d -> (long) d.getAsString().hashCode());
+    }
+
+    // packs block coordinates in a single long, x and z take 26 bits, y takes 12 bits
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    @FunctionalInterface
+    private interface BlockHasher {
+        long hash(int x, int y, int z);
+    }
+
+    /**
+     * A chunk section, which is a 16x16x16 part of a chunk.
+     *
+     * @param x The chunk x coordinate
+     * @param y The section y coordinate, which is the block y coordinate divided by 16
+     * @param z The chunk z coordinate
+     */
+    public record Section(int x, int y, int z) {
+
+    }
+}
@@ -0,0 +1,253 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Hands out non-overlapping square slots in a world, usually one created with {@link VoidGenerator}.
+ * Slots are placed on a grid in a spiral around (0, 0), so the world stays as small as possible.
+ * Released slots are kept in a free list and handed out again before new space is used.
+ * Every allocation has its own generation, so a {@link Slot} which has been released can't release a later allocation of the same index.
+ * <p>Example:</p>
+ * <blockquote><code>Grid grid = new Grid(world, 128, 64);<br>Grid.Slot slot = grid.allocate();<br>schematic.paste(slot.getMin(64));</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class Grid {
+
+    private final World world;
+    private final int size;
+    private final int pitch;
+    private int next = 0;
+    private long generation = 0;
+    private final Queue<Integer> free = new PriorityQueue<>();
+    private final Map<Long, Slot> allocated = new HashMap<>();
+
+    /**
+     * Constructor. The size and gap are rounded up to a multiple of 16, so slots never share a chunk.
+     *
+     * @param world The world
+     * @param size  The width of each slot in blocks
+     * @param gap   The amount of blocks between two slots
+     */
+    public Grid(@NotNull World world, int size, int gap) {
+        if (size <= 0 || gap < 0) {
+            throw new IllegalArgumentException("Size must be above 0 and gap must be 0 or above");
+        }
+
+        this.world = world;
+        this.size = ceil16(size);
+        this.pitch = this.size + ceil16(gap);
+    }
+
+    /**
+     * Allocates a slot. Previously released slots are reused first, lowest index first.
+     *
+     * @return the allocated slot.
+     */
+    public synchronized Slot allocate() {
+        Integer index = free.poll();
+        if (index == null) {
+            index = next++;
+        }
+
+        int[] position = spiral(index);
+        Slot slot = new Slot(index, generation++, world, position[0] * pitch, position[1] * pitch, size);
+
+        allocated.put(pack(position[0], position[1]), slot);
+
+        return slot;
+    }
+
+    /**
+     * Releases a slot without clearing it. The slot may be handed out again immediately.
+     * Releasing a slot which has already been released does nothing.
+     *
+     * @param slot The slot
+     */
+    public synchronized void release(@NotNull Slot slot) {
+        if (allocated.remove(pack(Math.floorDiv(slot.minX(), pitch), Math.floorDiv(slot.minZ(), pitch)), slot)) {
+            free.add(slot.index());
+        }
+    }
+
+    /**
+     * Clears all blocks in a slot, after which the slot is released.
+     * Chunk snapshots are taken on the calling thread, which must be the main thread.
+     * Blocks are found asynchronously from the snapshots, and removed on the main thread using {@link Cuboid#set(Map, Plugin, Runnable)}.
+     *
+     * @param slot       The slot
+     * @param onComplete What to do after the slot has been released.
+     * @throws IllegalStateException if the slot has already been released.
+     */
+    public void release(@NotNull Slot slot, Plugin plugin, @Nullable Runnable onComplete) {
+        if (!isAllocated(slot)) {
+            throw new IllegalStateException("Slot %d has already been released".formatted(slot.index()));
+        }
+
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight();
+        List<ChunkSnapshot> snapshots = new ArrayList<>();
+        for (int cx = slot.minX() >> 4; cx < (slot.minX() + size) >> 4; cx++) {
+            for (int cz = slot.minZ() >> 4; cz < (slot.minZ() + size) >> 4; cz++) {
+                snapshots.add(world.getChunkAt(cx, cz).getChunkSnapshot(false, false, false));
+            }
+        }
+
+        Task.create(plugin).async().execute(() -> {
+            List<int[]> positions = new ArrayList<>(); // only read snapshots here, blocks are looked up on the main thread
+
+            for (ChunkSnapshot snapshot : snapshots) {
+                for (int y = minY; y < maxY; y++) {
+                    for (int x = 0; x < 16; x++) {
+                        for (int z = 0; z < 16; z++) {
+                            if (snapshot.getBlockType(x, y, z).isAir()) {
+                                continue;
+                            }
+
+                            positions.add(new int[]{(snapshot.getX() << 4) + x, y, (snapshot.getZ() << 4) + z});
+                        }
+                    }
+                }
+            }
+
+            Task.mainExecutor(plugin).execute(() -> {
+                BlockData air = Bukkit.createBlockData("minecraft:air");
+                Map<Block, BlockData> blocks = new HashMap<>();
+                for (int[] position : positions) {
+                    blocks.put(world.getBlockAt(position[0], position[1], position[2]), air);
+                }
+
+                Cuboid.set(blocks, plugin, () -> {
+                    release(slot);
+
+                    if (onComplete != null) {
+                        onComplete.run();
+                    }
+                });
+            });
+        }).run();
+    }
+
+    /**
+     * @param slot The slot.
+     * @return True if this exact allocation of the slot hasn't been released yet, false if it has.
+     */
+    public synchronized boolean isAllocated(@NotNull Slot slot) {
+        return slot.equals(allocated.get(pack(Math.floorDiv(slot.minX(), pitch), Math.floorDiv(slot.minZ(), pitch))));
+    }
+
+    /**
+     * Returns the allocated slot which contains the provided location.
+     *
+     * @param location The location
+     * @return the slot, or null if the location isn't in an allocated slot.
+     */
+    public synchronized @Nullable Slot get(@NotNull Location location) {
+        if (location.getWorld() != world) {
+            return null;
+        }
+
+        int x = location.getBlockX();
+        int z = location.getBlockZ();
+
+        if (Math.floorMod(x, pitch) >= size || Math.floorMod(z, pitch) >= size) { // in the gap between slots
+            return null;
+        }
+
+        return allocated.get(pack(Math.floorDiv(x, pitch), Math.floorDiv(z, pitch)));
+    }
+
+    /**
+     * @return All currently allocated slots.
+     */
+    public synchronized List<Slot> getAllocated() {
+        return new ArrayList<>(allocated.values());
+    }
+
+    /**
+     * @return The world.
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    // returns the grid position of the nth item in a square spiral around (0, 0)
+    private static int[] spiral(int n) {
+        if (n == 0) {
+            return new int[]{0, 0};
+        }
+
+        int ring = (int) Math.ceil((Math.sqrt(n + 1) - 1) / 2);
+        int side = 2 * ring;
+        int end = (side + 1) * (side + 1) - 1; // last index in this ring
+
+        if (n > end - side) {
+            return new int[]{ring - (end - n), -ring};
+        }
+        end -= side;
+        if (n > end - side) {
+            return new int[]{-ring, -ring + (end - n)};
+        }
+        end -= side;
+        if (n > end - side) {
+            return new int[]{-ring + (end - n), ring};
+        }
+        end -= side;
+        return new int[]{ring, ring - (end - n)};
+    }
+
+    private static int ceil16(int value) {
+        return (value + 15) & ~15;
+    }
+
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A slot in a {@link Grid}.
+     *
+     * @param index      The index of this slot in the spiral
+     * @param generation The allocation this slot belongs to, unique per grid
+     * @param world      The world
+     * @param minX       The smallest x coordinate
+     * @param minZ       The smallest z coordinate
+     * @param size       The width of this slot in blocks
+     */
+    public record Slot(int index, long generation, World world, int minX, int minZ, int size) {
+
+        /**
+         * @param y The y coordinate.
+         * @return The smallest location of this slot at height y.
+         */
+        public Location getMin(int y) {
+            return new Location(world, minX, y, minZ);
+        }
+
+        /**
+         * @param y The y coordinate.
+         * @return The largest location of this slot at height y.
+         */
+        public Location getMax(int y) {
+            return new Location(world, minX + size - 1, y, minZ + size - 1);
+        }
+
+        /**
+         * @param y The y coordinate.
+         * @return The center of this slot at height y.
+         */
+        public Location getCenter(int y) {
+            return new Location(world, minX + size / 2.0, y, minZ + size / 2.0);
+        }
+    }
+}
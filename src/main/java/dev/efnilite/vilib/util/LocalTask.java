@@ -0,0 +1,63 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A task which isn't registered with the Bukkit scheduler, such as work run by the {@link TickQueue},
+ * the {@link TimingWheel} or the I/O executor.
+ * Every task has a unique negative id, so ids never collide with the ids of Bukkit tasks,
+ * and passing them to the Bukkit scheduler does nothing.
+ *
+ * @author Efnilite
+ */
+abstract class LocalTask implements BukkitTask {
+
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private final int id = ids.decrementAndGet();
+    private final Plugin plugin;
+    private final boolean sync;
+    protected volatile boolean cancelled = false;
+    protected volatile boolean done = false;
+
+    protected LocalTask(Plugin plugin, boolean sync) {
+        this.plugin = plugin;
+        this.sync = sync;
+    }
+
+    /**
+     * @return True if this task has been cancelled or will never run again, false if not.
+     */
+    public boolean isDone() {
+        return cancelled || done;
+    }
+
+    @Override
+    public int getTaskId() {
+        return id;
+    }
+
+    @Override
+    public @NotNull Plugin getOwner() {
+        return plugin;
+    }
+
+    @Override
+    public boolean isSync() {
+        return sync;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+}
@@ -0,0 +1,173 @@
+package dev.efnilite.vilib.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message with placeholders, such as <code>"&lt;gray&gt;Time: &lt;white&gt;%time%"</code>, which is coloured once.
+ * Formatting placeholders first and colouring afterwards parses the whole message every time a value changes.
+ * Instead, the message is parsed with each placeholder replaced by a marker character, and the coloured result is split
+ * at the markers. Rendering only joins the coloured parts with the values, so it is cheap enough to do every tick.
+ * <p>
+ * Values are inserted as plain text and take on the colour of the text before them, so they can't contain MiniMessage tags.
+ * Placeholders are only supported in text, not inside tags. Templates can't be modified, so they can be shared between threads.
+ * </p>
+ * <p>Example:</p>
+ * <blockquote><code>MessageTemplate time = MessageTemplate.compile("&lt;gray&gt;Time: &lt;white&gt;%time%");<br>
+ * player.sendMessage(time.render("%.1fs".formatted(seconds)));</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class MessageTemplate {
+
+    /**
+     * The first marker character, from the private use area, so it is never changed by colouring.
+     */
+    private static final char MARKER = '\uE000';
+    private static final int MAX_PLACEHOLDERS = 6400; // size of the private use area
+
+    private final String[] parts;
+    private final int[] slots;
+    private final List<String> placeholders;
+    private final int length;
+
+    private MessageTemplate(String[] parts, int[] slots, List<String> placeholders) {
+        this.parts = parts;
+        this.slots = slots;
+        this.placeholders = placeholders;
+
+        int length = 0;
+        for (String part : parts) {
+            length += part.length();
+        }
+        this.length = length;
+    }
+
+    /**
+     * Compiles a message. Placeholders are names surrounded by %, consisting of letters, digits, _ and -.
+     *
+     * @param message The message, using MiniMessage formatting
+     * @return the template.
+     */
+    public static MessageTemplate compile(@NotNull String message) {
+        List<String> placeholders = new ArrayList<>();
+        StringBuilder marked = new StringBuilder(message.length());
+
+        int index = 0;
+        while (index < message.length()) {
+            char c = message.charAt(index);
+            if (c >= MARKER && c < MARKER + MAX_PLACEHOLDERS) {
+                throw new IllegalArgumentException("Message contains private use characters");
+            }
+
+            int end = c == '%' ? getPlaceholderEnd(message, index + 1) : -1;
+            if (end == -1) {
+                marked.append(c);
+                index++;
+                continue;
+            }
+
+            String name = message.substring(index + 1, end);
+            int slot = placeholders.indexOf(name);
+            if (slot == -1) {
+                slot = placeholders.size();
+                if (slot == MAX_PLACEHOLDERS) {
+                    throw new IllegalArgumentException("Message has more than %d placeholders".formatted(MAX_PLACEHOLDERS));
+                }
+                placeholders.add(name);
+            }
+
+            marked.append((char) (MARKER + slot));
+            index = end + 1;
+        }
+
+        return split(Strings.colourUncached(marked.toString()), List.copyOf(placeholders));
+    }
+
+    // returns the index of the closing %, or -1 if there is no valid placeholder
+    private static int getPlaceholderEnd(String message, int from) {
+        for (int i = from; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '%') {
+                return i == from ? -1 : i;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // splits the coloured message at the markers
+    private static MessageTemplate split(String coloured, List<String> placeholders) {
+        List<String> parts = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int start = 0;
+        for (int i = 0; i < coloured.length(); i++) {
+            char c = coloured.charAt(i);
+            if (c >= MARKER && c < MARKER + placeholders.size()) {
+                parts.add(coloured.substring(start, i));
+                slots.add(c - MARKER);
+                start = i + 1;
+            }
+        }
+        parts.add(coloured.substring(start));
+
+        return new MessageTemplate(parts.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray(), placeholders);
+    }
+
+    /**
+     * Renders this template.
+     *
+     * @param values The values, in the order the placeholders first appear in the message
+     * @return the coloured message.
+     */
+    @NotNull
+    public String render(@NotNull Object... values) {
+        if (values.length != placeholders.size()) {
+            throw new IllegalArgumentException("Expected %d values, got %d".formatted(placeholders.size(), values.length));
+        }
+
+        StringBuilder builder = new StringBuilder(length + 16 * slots.length);
+        builder.append(parts[0]);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(values[slots[i]]).append(parts[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Renders this template. Placeholders without a value are kept as they are.
+     *
+     * @param values The values, by placeholder name
+     * @return the coloured message.
+     */
+    @NotNull
+    public String render(@NotNull Map<String, ?> values) {
+        StringBuilder builder = new StringBuilder(length + 16 * slots.length);
+        builder.append(parts[0]);
+        for (int i = 0; i < slots.length; i++) {
+            String name = placeholders.get(slots[i]);
+            Object value = values.get(name);
+
+            if (value == null) {
+                builder.append('%').append(name).append('%');
+            } else {
+                builder.append(value);
+            }
+            builder.append(parts[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return The names of the placeholders, in the order they first appear in the message.
+     */
+    public List<String> getPlaceholders() {
+        return placeholders;
+    }
+}
@@ -0,0 +1,180 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link CompletableFuture} where every stage can run on the main thread or asynchronously,
+ * to avoid nesting {@link Task} calls. All stages of a pipeline share cancellation and timeouts:
+ * cancelling any stage or exceeding the timeout cancels every stage which hasn't completed yet.
+ * <p>Example:</p>
+ * <blockquote><code>Task.supplyAsync(plugin, () -> load(file))<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.thenSync(data -> apply(data))<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.thenAcceptAsync(result -> save(result))<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.timeout(10, TimeUnit.SECONDS);</code></blockquote>
+ *
+ * @param <T> The result type.
+ * @author Efnilite
+ */
+public class Pipeline<T> extends CompletableFuture<T> {
+
+    /**
+     * Runs timeouts. Cancelled timeouts are removed immediately, so finished pipelines don't leave tasks behind.
+     * Created when first needed, and stopped by {@link #shutdownTimeouts()}.
+     */
+    private static ScheduledThreadPoolExecutor timeouts;
+
+    private final Control control;
+
+    private Pipeline(Control control) {
+        this.control = control;
+        control.stages.add(this);
+    }
+
+    private static synchronized ScheduledExecutorService getTimeouts() {
+        if (timeouts == null) {
+            timeouts = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "vilib-pipeline-timeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timeouts.setRemoveOnCancelPolicy(true);
+        }
+        return timeouts;
+    }
+
+    /**
+     * Stops the thread which runs timeouts. Pending timeouts never fire, so their pipelines won't time out.
+     * A new thread is started when a timeout is set afterwards.
+     * Called automatically by {@link dev.efnilite.vilib.ViPlugin} on disable, so reloading doesn't leak the thread.
+     */
+    public static synchronized void shutdownTimeouts() {
+        if (timeouts != null) {
+            timeouts.shutdownNow();
+            timeouts = null;
+        }
+    }
+
+    /**
+     * Creates a new pipeline with no stages.
+     *
+     * @param plugin The plugin
+     * @param <T>    The result type
+     * @return a pipeline which must be completed manually.
+     */
+    public static <T> Pipeline<T> create(@NotNull Plugin plugin) {
+        return new Pipeline<>(new Control(plugin));
+    }
+
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new Pipeline<>(control);
+    }
+
+    @Override
+    public Executor defaultExecutor() {
+        return Task.asyncExecutor(control.plugin);
+    }
+
+    /**
+     * Runs fn with the result of this stage on the main thread.
+     *
+     * @param fn  The function
+     * @param <R> The new result type
+     * @return the next stage.
+     */
+    public <R> Pipeline<R> thenSync(@NotNull Function<? super T, ? extends R> fn) {
+        return (Pipeline<R>) this.<R>thenApplyAsync(fn, Task.mainExecutor(control.plugin));
+    }
+
+    /**
+     * Runs fn with the result of this stage asynchronously.
+     *
+     * @param fn  The function
+     * @param <R> The new result type
+     * @return the next stage.
+     */
+    public <R> Pipeline<R> thenAsync(@NotNull Function<? super T, ? extends R> fn) {
+        return (Pipeline<R>) this.<R>thenApplyAsync(fn, Task.asyncExecutor(control.plugin));
+    }
+
+    /**
+     * Runs consumer with the result of this stage on the main thread.
+     *
+     * @param consumer The consumer
+     * @return the next stage.
+     */
+    public Pipeline<Void> thenAcceptSync(@NotNull Consumer<? super T> consumer) {
+        return (Pipeline<Void>) thenAcceptAsync(consumer, Task.mainExecutor(control.plugin));
+    }
+
+    /**
+     * Runs consumer with the result of this stage asynchronously.
+     *
+     * @param consumer The consumer
+     * @return the next stage.
+     */
+    @Override
+    public Pipeline<Void> thenAcceptAsync(@NotNull Consumer<? super T> consumer) {
+        return (Pipeline<Void>) thenAcceptAsync(consumer, Task.asyncExecutor(control.plugin));
+    }
+
+    /**
+     * Cancels every stage of this pipeline which hasn't completed, with a {@link TimeoutException},
+     * when this stage hasn't completed within the provided time. The timer is cancelled when this stage completes.
+     *
+     * @param timeout The timeout
+     * @param unit    The unit of the timeout
+     * @return this stage.
+     */
+    public Pipeline<T> timeout(long timeout, @NotNull TimeUnit unit) {
+        ScheduledFuture<?> timer = getTimeouts().schedule(() ->
+                control.fail(new TimeoutException("Pipeline timed out after %d %s".formatted(timeout, unit))), timeout, unit);
+
+        whenComplete((result, throwable) -> timer.cancel(false));
+        return this;
+    }
+
+    /**
+     * Cancels every stage of this pipeline which hasn't completed yet.
+     *
+     * @param mayInterruptIfRunning Unused, as in {@link CompletableFuture#cancel(boolean)}
+     * @return true if this stage is now cancelled.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        control.fail(new CancellationException());
+        return isCancelled();
+    }
+
+    private void superCancel() {
+        super.cancel(false);
+    }
+
+    // the state shared by all stages of a pipeline
+    private static class Control {
+
+        private final Plugin plugin;
+        private final List<Pipeline<?>> stages = new CopyOnWriteArrayList<>();
+
+        private Control(Plugin plugin) {
+            this.plugin = plugin;
+        }
+
+        private void fail(Throwable throwable) {
+            for (Pipeline<?> stage : stages) {
+                if (throwable instanceof CancellationException) {
+                    stage.superCancel();
+                } else {
+                    stage.completeExceptionally(throwable);
+                }
+            }
+            stages.clear();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates chunks of worlds using {@link VoidGenerator} ahead of time, so the first player to join a region
+ * doesn't have to wait for chunks to generate. Chunks are requested at a limited rate per tick.
+ * On Paper, chunks are generated asynchronously. On Spigot, chunks are generated on the main thread.
+ * Chunks can optionally be kept loaded with a plugin chunk ticket until the region is released.
+ * Plugin chunk tickets aren't counted by the server, so the tickets of overlapping regions are counted here,
+ * and a ticket is only removed when the last region which uses the chunk has been released.
+ * <p>All methods must be called on the main thread.</p>
+ *
+ * @author Efnilite
+ */
+public class Pregenerator {
+
+    private static Method getChunkAtAsyncMethod;
+
+    static {
+        try {
+            getChunkAtAsyncMethod = World.class.getMethod("getChunkAtAsync", int.class, int.class, boolean.class);
+        } catch (Exception ex) {
+            getChunkAtAsyncMethod = null;
+        }
+    }
+
+    private final int chunksPerTick;
+    private final Plugin plugin;
+    private final Queue<Request> queue = new ArrayDeque<>();
+    private final Set<Request> loading = new HashSet<>();
+    private final Map<Area, Deque<Generation>> generations = new HashMap<>(); // unreleased calls to generate, oldest first
+    private final Map<World, Map<Long, Integer>> tickets = new HashMap<>(); // amount of calls which hold each chunk
+    private boolean running = false;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin        The plugin
+     * @param chunksPerTick The max amount of chunks requested per tick
+     */
+    public Pregenerator(@NotNull Plugin plugin, int chunksPerTick) {
+        if (chunksPerTick <= 0) {
+            throw new IllegalArgumentException("Chunks per tick must be above 0");
+        }
+
+        this.plugin = plugin;
+        this.chunksPerTick = chunksPerTick;
+    }
+
+    /**
+     * Generates all chunks of a slot and the chunks in <code>radius</code> around it.
+     *
+     * @param slot       The slot
+     * @param radius     The amount of chunks around the slot to generate
+     * @param keepLoaded Whether to keep the chunks loaded until {@link #release(Grid.Slot, int)} is called
+     * @return a future which completes when all chunks have been generated.
+     * @see #generate(World, int, int, int, int, boolean)
+     */
+    public CompletableFuture<Void> generate(@NotNull Grid.Slot slot, int radius, boolean keepLoaded) {
+        return generate(slot.world(),
+                (slot.minX() >> 4) - radius, (slot.minZ() >> 4) - radius,
+                ((slot.minX() + slot.size() - 1) >> 4) + radius, ((slot.minZ() + slot.size() - 1) >> 4) + radius,
+                keepLoaded);
+    }
+
+    /**
+     * Generates all chunks between the provided chunk coordinates.
+     *
+     * @param world      The world, which must use {@link VoidGenerator}
+     * @param minX       The smallest chunk x coordinate (inclusive)
+     * @param minZ       The smallest chunk z coordinate (inclusive)
+     * @param maxX       The largest chunk x coordinate (inclusive)
+     * @param maxZ       The largest chunk z coordinate (inclusive)
+     * @param keepLoaded Whether to keep the chunks loaded until {@link #release(World, int, int, int, int)} is called
+     * @return a future which completes when all chunks have been generated, or exceptionally if a chunk failed to generate.
+     */
+    public CompletableFuture<Void> generate(@NotNull World world, int minX, int minZ, int maxX, int maxZ, boolean keepLoaded) {
+        if (!(world.getGenerator() instanceof VoidGenerator)) {
+            throw new IllegalArgumentException("World %s doesn't use VoidGenerator".formatted(world.getName()));
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger((maxX - minX + 1) * (maxZ - minZ + 1));
+        Area area = new Area(world, minX, minZ, maxX, maxZ);
+
+        if (remaining.get() <= 0) {
+            future.complete(null);
+            return future;
+        }
+
+        Generation generation = new Generation(area);
+        generations.computeIfAbsent(area, k -> new ArrayDeque<>()).add(generation);
+        if (!keepLoaded) { // nothing to release once done
+            future.whenComplete((result, throwable) -> forget(generation));
+        }
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                queue.add(new Request(generation, x, z, keepLoaded, remaining, future));
+            }
+        }
+
+        start();
+
+        return future;
+    }
+
+    /**
+     * Releases the chunk tickets of a slot and the chunks in <code>radius</code> around it.
+     * Chunks of this slot which haven't been generated yet are skipped.
+     *
+     * @param slot   The slot
+     * @param radius The radius which was used in {@link #generate(Grid.Slot, int, boolean)}
+     */
+    public void release(@NotNull Grid.Slot slot, int radius) {
+        release(slot.world(),
+                (slot.minX() >> 4) - radius, (slot.minZ() >> 4) - radius,
+                ((slot.minX() + slot.size() - 1) >> 4) + radius, ((slot.minZ() + slot.size() - 1) >> 4) + radius);
+    }
+
+    /**
+     * Releases the chunk tickets of an area, which must be the same area as passed to {@link #generate(World, int, int, int, int, boolean)}.
+     * When the same area has been generated multiple times, each release only releases one of those calls,
+     * starting with the oldest, so every call to generate needs its own release.
+     * Chunks of the released call which haven't been generated yet are skipped. Tickets of chunks which are also
+     * used by calls which haven't been released are kept.
+     *
+     * @param world The world
+     * @param minX  The smallest chunk x coordinate (inclusive)
+     * @param minZ  The smallest chunk z coordinate (inclusive)
+     * @param maxX  The largest chunk x coordinate (inclusive)
+     * @param maxZ  The largest chunk z coordinate (inclusive)
+     */
+    public void release(@NotNull World world, int minX, int minZ, int maxX, int maxZ) {
+        Deque<Generation> released = generations.get(new Area(world, minX, minZ, maxX, maxZ));
+        if (released == null) {
+            return;
+        }
+
+        Generation generation = released.poll();
+        forget(generation);
+
+        for (Collection<Request> requests : List.of(queue, loading)) {
+            requests.removeIf(request -> {
+                if (request.generation() != generation) {
+                    return false;
+                }
+
+                request.done();
+                return true;
+            });
+        }
+
+        if (generation.held.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> counts = tickets.get(world);
+        for (long chunk : generation.held) {
+            if (counts.merge(chunk, -1, Integer::sum) > 0) {
+                continue;
+            }
+
+            counts.remove(chunk);
+            world.removePluginChunkTicket((int) (chunk >> 32), (int) chunk, plugin);
+        }
+
+        if (counts.isEmpty()) {
+            tickets.remove(world);
+        }
+    }
+
+    private void forget(Generation generation) {
+        Deque<Generation> same = generations.get(generation.area);
+        if (same != null && same.remove(generation) && same.isEmpty()) {
+            generations.remove(generation.area);
+        }
+    }
+
+    /**
+     * @return The amount of chunks which are waiting to be generated.
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    private void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+
+        Task.create(plugin).repeat(1).execute(new BukkitRunnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < chunksPerTick; i++) {
+                    Request request = queue.poll();
+
+                    if (request == null) {
+                        running = false;
+                        cancel();
+                        return;
+                    }
+
+                    load(request);
+                }
+            }
+        }).run();
+    }
+
+    private void load(Request request) {
+        if (getChunkAtAsyncMethod == null) {
+            request.world().loadChunk(request.x(), request.z(), true);
+            loaded(request);
+            return;
+        }
+
+        try {
+            @SuppressWarnings("unchecked")
+            CompletableFuture<Chunk> future = (CompletableFuture<Chunk>) getChunkAtAsyncMethod
+                    .invoke(request.world(), request.x(), request.z(), true);
+
+            loading.add(request);
+            future.whenComplete((chunk, throwable) -> {
+                if (!loading.remove(request)) { // skip chunks which have been released while loading
+                    return;
+                }
+
+                if (throwable == null) {
+                    loaded(request);
+                } else {
+                    request.future().completeExceptionally(throwable);
+                }
+            });
+        } catch (Exception ex) {
+            request.world().loadChunk(request.x(), request.z(), true);
+            loaded(request);
+        }
+    }
+
+    private void loaded(Request request) {
+        if (request.keepLoaded()) {
+            long chunk = ((long) request.x() << 32) | (request.z() & 0xFFFFFFFFL);
+
+            request.generation().held.add(chunk);
+            if (tickets.computeIfAbsent(request.world(), k -> new HashMap<>()).merge(chunk, 1, Integer::sum) == 1) {
+                request.world().addPluginChunkTicket(request.x(), request.z(), plugin);
+            }
+        }
+
+        request.done();
+    }
+
+    // the area of a call to generate
+    private record Area(World world, int minX, int minZ, int maxX, int maxZ) {
+
+    }
+
+    // a single call to generate, compared by identity, so calls for the same area are released separately
+    private static class Generation {
+
+        private final Area area;
+        private final List<Long> held = new ArrayList<>(); // chunks for which this call holds a ticket
+
+        private Generation(Area area) {
+            this.area = area;
+        }
+    }
+
+    private record Request(Generation generation, int x, int z, boolean keepLoaded,
+                           AtomicInteger remaining, CompletableFuture<Void> future) {
+
+        public World world() {
+            return generation.area.world();
+        }
+
+        public void done() {
+            if (remaining.decrementAndGet() == 0) {
+                future.complete(null);
+            }
+        }
+    }
+}
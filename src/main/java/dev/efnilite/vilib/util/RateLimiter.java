@@ -0,0 +1,372 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how often an action can be performed, per player and action.
+ * Where {@link Cooldowns} only allows one action every N ms, a rate limiter allows a rate with bursts.
+ * <ul>
+ *     <li>{@link #tokenBucket(double, int)} - Refills at a constant rate, and allows using up to the capacity at once.
+ *     E.g. 10 clicks per second, with bursts of at most 3 clicks.</li>
+ *     <li>{@link #slidingWindow(int, long)} - Allows at most a limit of actions in any window of time.
+ *     E.g. 5 commands per 10 seconds.</li>
+ * </ul>
+ * The state of each player and action is a single long, updated with compare-and-set, so checking never locks,
+ * except the first time an action or a player is seen. States are stored per player, in an array indexed by
+ * the id of the action, so checking doesn't allocate.
+ * Players whose actions are all equivalent to having no entry (a full bucket or an empty window) are removed by a sweep,
+ * which runs at most once per {@value #MIN_SWEEP_INTERVAL} ms or the time it takes an entry to become equivalent
+ * to having no entry, whichever is longer. Every limiter stores at most a max amount of players.
+ * When full, actions of new players are denied until the next sweep. Entries can be checked from any thread.
+ * <p>Example:</p>
+ * <blockquote><code>RateLimiter clicks = RateLimiter.tokenBucket(10, 3);<br>
+ * if (!clicks.tryAcquire(player, "click")) { return; }</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class RateLimiter {
+
+    /**
+     * The default max amount of players.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    /**
+     * The max amount of different actions per limiter.
+     */
+    public static final int MAX_ACTIONS = 1024;
+
+    /**
+     * The min time between sweeps in ms.
+     */
+    public static final long MIN_SWEEP_INTERVAL = 1000;
+
+    private static final long COUNT_MASK = 0xFFFF;
+    private static final UUID GLOBAL = new UUID(0, 0);
+    private static final long ORIGIN = System.nanoTime(); // keeps times positive
+    private static final long DEAD = Long.MIN_VALUE; // state of a player who was removed by a sweep, never a valid state
+    private static final AtomicLong DEAD_STATE = new AtomicLong(DEAD);
+
+    private final boolean tokenBucket;
+    private final long interval; // token bucket: ns per token, sliding window: window size in ns
+    private final long limit; // token bucket: capacity in ns, sliding window: max actions per window
+    private final long sweepInterval; // in ns
+    private final Map<String, Integer> actions = new ConcurrentHashMap<>();
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(0);
+    private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    private RateLimiter(boolean tokenBucket, long interval, long limit) {
+        this.tokenBucket = tokenBucket;
+        this.interval = interval;
+        this.limit = limit;
+
+        // a bucket is full after limit, a window is empty after two windows
+        long idle = tokenBucket ? limit : 2 * interval;
+        this.sweepInterval = Math.max(idle, MIN_SWEEP_INTERVAL * 1_000_000);
+    }
+
+    /**
+     * Creates a token bucket limiter.
+     *
+     * @param perSecond The amount of actions which are allowed per second on average
+     * @param capacity  The max amount of actions which are allowed at once
+     * @return a new limiter.
+     */
+    public static RateLimiter tokenBucket(double perSecond, int capacity) {
+        if (perSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be above 0");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+
+        long interval = (long) (1_000_000_000 / perSecond);
+        return new RateLimiter(true, interval, interval * capacity);
+    }
+
+    /**
+     * Creates a sliding window limiter. The amount of actions in the window is estimated from the counts of the current
+     * and the previous fixed window, weighted by how far the current window has progressed.
+     *
+     * @param limit  The max amount of actions in a window, up to 65535
+     * @param window The window in ms
+     * @return a new limiter.
+     */
+    public static RateLimiter slidingWindow(int limit, long window) {
+        if (limit < 1 || limit > COUNT_MASK) {
+            throw new IllegalArgumentException("Limit must be between 1 and %d".formatted(COUNT_MASK));
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be above 0");
+        }
+
+        return new RateLimiter(false, window * 1_000_000, limit);
+    }
+
+    /**
+     * Sets the max amount of players this limiter stores. When there are this many players, actions of new players
+     * are denied, until the next sweep has removed players.
+     *
+     * @param maxEntries The max amount of players
+     * @return the instance of this class
+     */
+    public RateLimiter maxEntries(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be at least 1");
+        }
+
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Tries to perform a global action.
+     *
+     * @param action The action
+     * @return true if the action is allowed, false if the limit has been reached.
+     */
+    public boolean tryAcquire(@NotNull String action) {
+        return tryAcquire(GLOBAL, action);
+    }
+
+    /**
+     * Tries to perform an action of a player.
+     *
+     * @param player The player
+     * @param action The action
+     * @return true if the action is allowed, false if the limit has been reached.
+     */
+    public boolean tryAcquire(@NotNull Player player, @NotNull String action) {
+        return tryAcquire(player.getUniqueId(), action);
+    }
+
+    /**
+     * Tries to perform an action of a player.
+     *
+     * @param uuid   The UUID of the player
+     * @param action The action, one of a fixed set of names, see {@link #getActionId(String)}
+     * @return true if the action is allowed, false if the limit has been reached.
+     */
+    public boolean tryAcquire(@NotNull UUID uuid, @NotNull String action) {
+        return tryAcquire(uuid, getActionId(action));
+    }
+
+    /**
+     * Tries to perform an action of a player.
+     *
+     * @param uuid     The UUID of the player
+     * @param actionId The id of the action, as returned by {@link #getActionId(String)}
+     * @return true if the action is allowed, false if the limit has been reached.
+     */
+    public boolean tryAcquire(@NotNull UUID uuid, int actionId) {
+        if (actionId < 0 || actionId >= MAX_ACTIONS) {
+            throw new IllegalArgumentException("Unknown action id %d".formatted(actionId));
+        }
+
+        long now = System.nanoTime() - ORIGIN;
+        Boolean acquired;
+        do {
+            Entry entry = entries.get(uuid);
+            if (entry == null) {
+                sweep(now);
+
+                if (entries.size() >= maxEntries) {
+                    return false; // full, so deny instead of allowing without a limit
+                }
+                entry = entries.computeIfAbsent(uuid, k -> new Entry());
+            }
+
+            AtomicLong state = entry.get(actionId);
+            acquired = tokenBucket ? acquireToken(state, now) : acquireWindow(state, now);
+        } while (acquired == null); // removed by a sweep, so use a new entry
+
+        return acquired;
+    }
+
+    /**
+     * Returns the id of an action in this limiter. Ids are assigned the first time an action is used.
+     * Every limiter supports at most {@value #MAX_ACTIONS} actions, so actions must be a fixed set of names,
+     * not contain user input.
+     *
+     * @param action The action
+     * @return the id of the action.
+     */
+    public int getActionId(@NotNull String action) {
+        Objects.requireNonNull(action);
+
+        Integer id = actions.get(action);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (actions) {
+            id = actions.get(action);
+            if (id == null) {
+                if (actions.size() >= MAX_ACTIONS) {
+                    throw new IllegalStateException("Limiter has more than %d actions".formatted(MAX_ACTIONS));
+                }
+
+                id = actions.size();
+                actions.put(action, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Forgets all actions of a player.
+     *
+     * @param uuid The UUID of the player
+     */
+    public void reset(@NotNull UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    /**
+     * @return The amount of stored players.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    // GCRA: the state is the time at which the bucket is full again. Returns null if the state is dead
+    private Boolean acquireToken(AtomicLong state, long now) {
+        while (true) {
+            long full = state.get();
+            if (full == DEAD) {
+                return null;
+            }
+
+            long next = Math.max(full, now) + interval;
+
+            if (next - now > limit) { // not enough tokens
+                return false;
+            }
+            if (state.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+
+    // the state is the index of the current window (upper 32 bits), and the counts of the previous and current windows.
+    // returns null if the state is dead
+    private Boolean acquireWindow(AtomicLong state, long now) {
+        long index = now / interval;
+        double progress = (now % interval) / (double) interval;
+
+        while (true) {
+            long current = state.get();
+            if (current == DEAD) {
+                return null;
+            }
+
+            long stateIndex = current >>> 32;
+            long previousCount = (current >>> 16) & COUNT_MASK;
+            long currentCount = current & COUNT_MASK;
+
+            if (stateIndex != (index & 0xFFFFFFFFL)) { // move to the current window
+                previousCount = stateIndex == ((index - 1) & 0xFFFFFFFFL) ? currentCount : 0;
+                currentCount = 0;
+            }
+
+            if (previousCount * (1 - progress) + currentCount >= limit) {
+                return false;
+            }
+
+            long next = (index & 0xFFFFFFFFL) << 32 | previousCount << 16 | (currentCount + 1);
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    // removes players whose states are equivalent to having no entry, if the last sweep was long enough ago.
+    // only one thread sweeps at a time, and the cost is spread over all actions in the sweep interval
+    private void sweep(long now) {
+        long due = nextSweep.get();
+        if (now < due || !nextSweep.compareAndSet(due, now + sweepInterval)) {
+            return;
+        }
+
+        entries.forEach((uuid, entry) -> {
+            if (entry.retire(now)) {
+                entries.remove(uuid, entry);
+            }
+        });
+    }
+
+    private boolean isIdle(long value, long now) {
+        if (tokenBucket) {
+            return value <= now; // full bucket
+        }
+
+        long index = (now / interval) & 0xFFFFFFFFL;
+        return (value >>> 32) != index && (value >>> 32) != ((index - 1) & 0xFFFFFFFFL); // empty windows
+    }
+
+    // the states of a player, by action id
+    private class Entry {
+
+        private volatile AtomicLong[] states = new AtomicLong[0];
+        private boolean retired = false; // guarded by this
+
+        private AtomicLong get(int actionId) {
+            AtomicLong[] states = this.states;
+            if (actionId < states.length && states[actionId] != null) {
+                return states[actionId];
+            }
+
+            synchronized (this) {
+                if (retired) {
+                    return DEAD_STATE;
+                }
+
+                states = this.states;
+                if (actionId >= states.length) {
+                    states = Arrays.copyOf(states, actionId + 1);
+                }
+                if (states[actionId] == null) {
+                    states[actionId] = new AtomicLong(0);
+                }
+                this.states = states;
+                return states[actionId];
+            }
+        }
+
+        // marks every state as dead if all are idle, so acquires which still use this entry retry with a new one
+        // instead of being lost. Returns true if this entry can be removed
+        private synchronized boolean retire(long now) {
+            AtomicLong[] states = this.states;
+            long[] values = new long[states.length];
+
+            for (int i = 0; i < states.length; i++) {
+                if (states[i] != null && !isIdle(values[i] = states[i].get(), now)) {
+                    return false;
+                }
+            }
+
+            for (int i = 0; i < states.length; i++) {
+                if (states[i] != null && !states[i].compareAndSet(values[i], DEAD)) { // acquired in the meantime
+                    for (int j = 0; j < i; j++) {
+                        if (states[j] != null) {
+                            states[j].set(values[j]); // dead states are never changed by acquires
+                        }
+                    }
+                    return false;
+                }
+            }
+
+            retired = true;
+            return true;
+        }
+    }
+}
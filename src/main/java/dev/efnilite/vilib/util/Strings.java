@@ -7,11 +7,37 @@ import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.ChatColor;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Strings {
 
+    private static final int STRIPES = 16;
+
+    /**
+     * The coloured strings, by input. Each stripe is an LRU map with its own lock,
+     * so threads colouring different strings rarely wait on each other.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Map<String, String>[] CACHE = new Map[STRIPES];
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static volatile int maxCacheSize = 4096;
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            CACHE[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > maxCacheSize / STRIPES;
+                }
+            };
+        }
+    }
+
     private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
     private static final LegacyComponentSerializer LEGACY_COMPONENT_SERIALIZER = LegacyComponentSerializer.builder()
             .extractUrls()
@@ -27,7 +53,13 @@ public class Strings {
      * @return the coloured list of strings
      */
     public static List<String> colour(@NotNull List<String> strings) {
-        return strings.stream().map(Strings::colour).collect(Collectors.toList());
+        List<String> coloured = new ArrayList<>(strings.size());
+
+        for (String string : strings) {
+            coloured.add(colour(string));
+        }
+
+        return coloured;
     }
 
     /**
@@ -50,18 +82,100 @@ public class Strings {
     }
 
     /**
-     * Colours a string using {@link MiniMessage} and {@link LegacyComponentSerializer}
+     * Colours a string using {@link MiniMessage} and {@link LegacyComponentSerializer}.
+     * Results are cached, so strings which are coloured often, such as item names and lore, are only parsed once.
+     * Use {@link #colourUncached(String)} for strings which are unlikely to be coloured again.
      *
      * @param string The string
      * @return the coloured string
      */
     @NotNull
     public static String colour(@NotNull String string) {
+        Map<String, String> stripe = CACHE[(string.hashCode() & 0x7FFFFFFF) % STRIPES];
+
+        String coloured;
+        synchronized (stripe) {
+            coloured = stripe.get(string);
+        }
+        if (coloured != null) {
+            HITS.increment();
+            return coloured;
+        }
+
+        MISSES.increment();
+        coloured = colourUncached(string); // parse outside the lock
+        synchronized (stripe) {
+            stripe.put(string, coloured);
+        }
+        return coloured;
+    }
+
+    /**
+     * Colours a string without caching the result, for one-off strings such as messages containing player input.
+     *
+     * @param string The string
+     * @return the coloured string
+     */
+    @NotNull
+    public static String colourUncached(@NotNull String string) {
         Component component = MINI_MESSAGE.deserialize(string); // sanitize input
 
         return ChatColor.translateAlternateColorCodes(LegacyComponentSerializer.SECTION_CHAR, LEGACY_COMPONENT_SERIALIZER.serialize(component));
     }
 
+    /**
+     * Sets the max amount of coloured strings which are cached. When full, the least recently used strings are removed.
+     *
+     * @param size The max amount of strings
+     */
+    public static void setMaxCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Cache size must be at least 0");
+        }
+
+        maxCacheSize = size;
+    }
+
+    /**
+     * Removes all cached strings and resets the cache metrics.
+     */
+    public static void clearCache() {
+        for (Map<String, String> stripe : CACHE) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        HITS.reset();
+        MISSES.reset();
+    }
+
+    /**
+     * @return The amount of times a coloured string was found in the cache.
+     */
+    public static long getCacheHits() {
+        return HITS.sum();
+    }
+
+    /**
+     * @return The amount of times a string had to be parsed.
+     */
+    public static long getCacheMisses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * @return The amount of cached strings.
+     */
+    public static int getCacheSize() {
+        int size = 0;
+        for (Map<String, String> stripe : CACHE) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
     /**
      * Gets the closest matching string
      *
@@ -1,10 +1,24 @@
 package dev.efnilite.vilib.util;
 
+import dev.efnilite.vilib.event.EventWatcher;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitScheduler;
 import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 /**
  * Class for easily constructing tasks.
@@ -13,13 +27,32 @@ import org.bukkit.scheduler.BukkitTask;
  */
 public class Task {
 
+    /**
+     * The max amount of threads used for I/O tasks when virtual threads aren't available.
+     */
+    public static final int MAX_IO_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static volatile ExecutorService ioExecutor;
+    private static final Map<Object, Scope> scopes = new ConcurrentHashMap<>();
+    private static long leakThreshold = 10 * 60 * 1000;
+    private static final Map<Object, Runnable> coalesced = new LinkedHashMap<>();
+    private static final Map<Object, BukkitTask> debounced = new ConcurrentHashMap<>();
+    private static final Map<Object, Runnable> throttled = new ConcurrentHashMap<>(); // key -> trailing run, or NONE
+    private static final Runnable NONE = () -> {};
+    private static boolean flushScheduled = false;
+
     private int delay = 0;
     private int repeat = 0;
     private boolean async = false;
+    private boolean io = false;
+    private boolean queued = false;
+    private boolean uninterruptible = false;
     private final Plugin plugin;
     private Runnable defaultRunnable;
     private BukkitTask task;
     private BukkitRunnable bukkitRunnable;
+    private Object owner;
+    private String name;
 
     public Task(Plugin plugin) {
         this.plugin = plugin;
@@ -35,6 +68,389 @@ public class Task {
         return new Task(plugin);
     }
 
+    /**
+     * Returns an Executor which runs tasks on the main thread.
+     * Tasks submitted from the main thread are run immediately, others are run next tick, through the {@link TickQueue} if it is initialized.
+     *
+     * @param plugin The plugin which to register the tasks with
+     * @return the executor
+     */
+    public static Executor mainExecutor(@NotNull Plugin plugin) {
+        return runnable -> {
+            if (Bukkit.isPrimaryThread()) {
+                runnable.run();
+            } else if (TickQueue.isInitialized()) {
+                try {
+                    TickQueue.submit(runnable);
+                } catch (IllegalStateException ex) { // stopped in the meantime
+                    Bukkit.getScheduler().runTask(plugin, runnable);
+                }
+            } else {
+                Bukkit.getScheduler().runTask(plugin, runnable);
+            }
+        };
+    }
+
+    /**
+     * Returns an Executor which runs tasks asynchronously.
+     *
+     * @param plugin The plugin which to register the tasks with
+     * @return the executor
+     */
+    public static Executor asyncExecutor(@NotNull Plugin plugin) {
+        return runnable -> Bukkit.getScheduler().runTaskAsynchronously(plugin, runnable);
+    }
+
+    /**
+     * Returns the Executor used for blocking I/O, such as file and network access.
+     * Uses a virtual thread per task on runtimes which support them, and a bounded pool of daemon threads otherwise,
+     * so blocking tasks never occupy the threads of the Bukkit scheduler.
+     *
+     * @return the executor
+     */
+    public static Executor ioExecutor() {
+        return getIoExecutor();
+    }
+
+    private static ExecutorService getIoExecutor() {
+        ExecutorService executor = ioExecutor;
+        if (executor == null) {
+            synchronized (Task.class) {
+                executor = ioExecutor;
+                if (executor == null) {
+                    executor = createIoExecutor();
+                    ioExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Stops accepting I/O tasks and waits for running I/O tasks to complete.
+     * When called on the main thread, this blocks the server, so keep the timeout short.
+     * Tasks which haven't completed within the timeout are abandoned: queued tasks are dropped and running tasks are interrupted.
+     * Called automatically by {@link dev.efnilite.vilib.ViPlugin} on disable, which waits for 1 second.
+     *
+     * @param timeout The max time to wait in ms
+     * @return true if all tasks completed in time, false if tasks were abandoned.
+     */
+    public static boolean shutdownIo(long timeout) {
+        ExecutorService executor;
+        synchronized (Task.class) {
+            executor = ioExecutor;
+            ioExecutor = null;
+        }
+
+        if (executor == null) {
+            return true;
+        }
+
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        executor.shutdownNow();
+        return false;
+    }
+
+    private static ExecutorService createIoExecutor() {
+        try { // Java 21+
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_IO_THREADS, MAX_IO_THREADS, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "vilib-io-%d".formatted(count.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    /**
+     * Starts tracking tasks with an owner. Tasks owned by a player, or their UUID, are cancelled when the player leaves.
+     * Players are tracked by their UUID, so scopes never keep a player object alive.
+     * Every minute, owners whose tasks have all finished are forgotten, and a warning is logged for owners
+     * which have had tasks for longer than the leak threshold.
+     * Called automatically by {@link dev.efnilite.vilib.ViPlugin} on enable.
+     *
+     * @param plugin The plugin
+     */
+    public static void init(@NotNull Plugin plugin) {
+        new OwnerWatcher().register(plugin);
+
+        Task.create(plugin).repeat(60 * 20).execute(() -> {
+            long now = System.currentTimeMillis();
+
+            scopes.forEach((owner, scope) -> {
+                scope.tasks().removeIf(task -> !isLive(task));
+
+                if (scope.tasks().isEmpty()) {
+                    scopes.remove(owner, scope); // tasks added in the meantime are moved to a new scope by run()
+                } else if (now - scope.created() > leakThreshold && scope.warned().compareAndSet(false, true)) {
+                    plugin.getLogger().warning("%d tasks owned by %s have been running for %d minutes, which may be a leak"
+                            .formatted(scope.tasks().size(), owner, (now - scope.created()) / 60000));
+                }
+            });
+        }).run();
+    }
+
+    /**
+     * Sets the time after which a warning is logged for an owner whose tasks are still running.
+     *
+     * @param ms The time in ms
+     */
+    public static void leakThreshold(long ms) {
+        leakThreshold = ms;
+    }
+
+    /**
+     * Cancels all tasks of an owner.
+     *
+     * @param owner The owner, as set with {@link #owner(Object)}
+     * @return the amount of tasks which were cancelled.
+     */
+    public static int cancelAll(@NotNull Object owner) {
+        Object key = getScopeKey(owner);
+        Scope scope = scopes.get(key);
+        if (scope == null) {
+            return 0;
+        }
+
+        scope.closed().set(true); // closed before removing, so tasks which are added from now on are cancelled by run()
+        scopes.remove(key, scope);
+
+        int cancelled = 0;
+        for (BukkitTask task : scope.tasks()) {
+            if (isLive(task)) {
+                task.cancel();
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * @return The amount of live tasks of every owner.
+     */
+    public static Map<Object, Integer> getLiveTasks() {
+        Map<Object, Integer> live = new HashMap<>();
+
+        scopes.forEach((owner, scope) -> {
+            int count = (int) scope.tasks().stream().filter(Task::isLive).count();
+            if (count > 0) {
+                live.put(owner, count);
+            }
+        });
+
+        return live;
+    }
+
+    /**
+     * Returns a report of every owner with live tasks, the amount of tasks and how long the owner has had tasks,
+     * ordered by the amount of tasks.
+     *
+     * @return the report, with a line per owner.
+     */
+    public static List<String> report() {
+        long now = System.currentTimeMillis();
+        Map<Object, Integer> live = getLiveTasks();
+
+        return live.entrySet().stream()
+                .sorted(Map.Entry.<Object, Integer>comparingByValue().reversed())
+                .map(entry -> {
+                    Scope scope = scopes.get(entry.getKey());
+                    long alive = scope == null ? 0 : (now - scope.created()) / 1000;
+
+                    return "%s: %d tasks, alive for %ds".formatted(entry.getKey(), entry.getValue(), alive);
+                })
+                .toList();
+    }
+
+    // players are tracked by UUID, so scopes don't keep players who have left alive
+    private static Object getScopeKey(Object owner) {
+        return owner instanceof Player player ? player.getUniqueId() : owner;
+    }
+
+    private static boolean isLive(BukkitTask task) {
+        if (task instanceof LocalTask local) {
+            return !local.isDone();
+        }
+
+        BukkitScheduler scheduler = Bukkit.getScheduler();
+        return !task.isCancelled() && (scheduler.isQueued(task.getTaskId()) || scheduler.isCurrentlyRunning(task.getTaskId()));
+    }
+
+    /**
+     * Runs a runnable on the main thread once, at the start of the next tick, no matter how often it is requested for the same key
+     * before then. When requested multiple times, the last runnable is used. Can be called from any thread.
+     * <p>Example:</p>
+     * <blockquote><code>Task.coalesce(plugin, menu, menu::render); // in a click handler</code></blockquote>
+     *
+     * @param plugin   The plugin
+     * @param key      The key, such as the object being updated
+     * @param runnable The runnable
+     */
+    public static void coalesce(@NotNull Plugin plugin, @NotNull Object key, @NotNull Runnable runnable) {
+        boolean schedule;
+        synchronized (coalesced) {
+            coalesced.put(key, runnable);
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+
+        if (schedule) {
+            try {
+                Task.create(plugin).execute(() -> flush(plugin)).run();
+            } catch (Throwable throwable) { // no flush is coming, so the next call has to schedule one
+                synchronized (coalesced) {
+                    flushScheduled = false;
+                }
+                throw throwable;
+            }
+        }
+    }
+
+    /**
+     * Runs a runnable once calls for the same key have stopped for a delay. Every call resets the delay.
+     * Useful for saving data which changes often. Can be called from any thread.
+     *
+     * @param plugin   The plugin
+     * @param key      The key, such as the file being saved
+     * @param delay    The delay in ticks
+     * @param io       Whether to run the runnable on the {@link #ioExecutor()} instead of the main thread
+     * @param runnable The runnable
+     */
+    public static void debounce(@NotNull Plugin plugin, @NotNull Object key, int delay, boolean io, @NotNull Runnable runnable) {
+        BukkitTask[] task = new BukkitTask[1];
+
+        // only locks this key, so calls for other keys don't wait on scheduling
+        debounced.compute(key, (k, previous) -> {
+            if (previous != null) {
+                previous.cancel();
+            }
+
+            task[0] = Task.create(plugin).delay(delay).execute(() -> {
+                if (debounced.remove(key, task[0])) {
+                    runOn(plugin, io, runnable);
+                }
+            }).run();
+            return task[0];
+        });
+    }
+
+    /**
+     * Runs a runnable at most once per interval for the same key. The first call runs immediately.
+     * When called again within the interval, the last runnable is run at the end of the interval, so the last call is never lost.
+     * Can be called from any thread.
+     *
+     * @param plugin   The plugin
+     * @param key      The key, such as the file being saved
+     * @param interval The interval in ticks
+     * @param io       Whether to run the runnable on the {@link #ioExecutor()} instead of the main thread
+     * @param runnable The runnable
+     */
+    public static void throttle(@NotNull Plugin plugin, @NotNull Object key, int interval, boolean io, @NotNull Runnable runnable) {
+        boolean[] open = new boolean[1];
+
+        throttled.compute(key, (k, trailing) -> {
+            if (trailing == null) { // no interval active
+                open[0] = true;
+                return NONE;
+            }
+            return runnable;
+        });
+
+        if (open[0]) {
+            runOn(plugin, io, runnable);
+            closeThrottle(plugin, key, interval, io);
+        }
+    }
+
+    // ends the interval of a throttled key, running the last call made during the interval
+    private static void closeThrottle(Plugin plugin, Object key, int interval, boolean io) {
+        Task.create(plugin).delay(interval).execute(() -> {
+            Runnable[] trailing = new Runnable[1];
+
+            throttled.computeIfPresent(key, (k, current) -> {
+                if (current == NONE) { // no calls during the interval
+                    return null;
+                }
+                trailing[0] = current;
+                return NONE;
+            });
+
+            if (trailing[0] != null) { // start a new interval for the last call
+                runOn(plugin, io, trailing[0]);
+                closeThrottle(plugin, key, interval, io);
+            }
+        }).run();
+    }
+
+    private static void runOn(Plugin plugin, boolean io, Runnable runnable) {
+        if (io) {
+            Task.create(plugin).io().execute(runnable).run();
+        } else if (Bukkit.isPrimaryThread()) {
+            runnable.run();
+        } else {
+            Task.create(plugin).execute(runnable).run();
+        }
+    }
+
+    // runs all coalesced runnables. Also called when the TickQueue stops, since the scheduled flush may have been cancelled
+    static void flush(@Nullable Plugin plugin) {
+        List<Runnable> runnables;
+        synchronized (coalesced) {
+            runnables = new ArrayList<>(coalesced.values());
+            coalesced.clear();
+            flushScheduled = false;
+        }
+
+        for (Runnable runnable : runnables) {
+            try {
+                runnable.run();
+            } catch (Throwable throwable) {
+                (plugin == null ? Bukkit.getLogger() : plugin.getLogger()).log(Level.SEVERE, "Error while running coalesced task", throwable);
+            }
+        }
+    }
+
+    /**
+     * Starts a {@link Pipeline} by running supplier on the main thread.
+     *
+     * @param plugin   The plugin which to register the tasks with
+     * @param supplier The supplier
+     * @param <T>      The result type
+     * @return the first stage of the pipeline
+     */
+    public static <T> Pipeline<T> supplySync(@NotNull Plugin plugin, @NotNull Supplier<T> supplier) {
+        Pipeline<T> pipeline = Pipeline.create(plugin);
+        pipeline.completeAsync(supplier, mainExecutor(plugin));
+        return pipeline;
+    }
+
+    /**
+     * Starts a {@link Pipeline} by running supplier asynchronously.
+     *
+     * @param plugin   The plugin which to register the tasks with
+     * @param supplier The supplier
+     * @param <T>      The result type
+     * @return the first stage of the pipeline
+     */
+    public static <T> Pipeline<T> supplyAsync(@NotNull Plugin plugin, @NotNull Supplier<T> supplier) {
+        Pipeline<T> pipeline = Pipeline.create(plugin);
+        pipeline.completeAsync(supplier, asyncExecutor(plugin));
+        return pipeline;
+    }
+
     /**
      * Specifies which Java Runnable should be executed. This supports lambdas.
      *
@@ -67,6 +483,80 @@ public class Task {
         return this;
     }
 
+    /**
+     * Whether this task performs blocking I/O. The task is run on the {@link #ioExecutor()} instead of the Bukkit async scheduler.
+     * Delayed and repeating tasks are timed by the Bukkit async scheduler, but each run is handed off to the I/O executor.
+     * Only applies to Java Runnables.
+     *
+     * @return the instance of this class
+     */
+    public Task io() {
+        this.async = true;
+        this.io = true;
+        return this;
+    }
+
+    /**
+     * Whether this task should be added to the {@link TickQueue} when it is run from another thread, instead of creating a Bukkit task.
+     * Queued tasks are cheaper, but may be deferred by a few ticks when the queue's budget is used up.
+     * Only applies to Java Runnables which run on the main thread without delay or repeat, and only when the queue is initialized.
+     *
+     * @return the instance of this class
+     */
+    public Task queued() {
+        this.queued = true;
+        return this;
+    }
+
+    /**
+     * Whether cancelling this I/O task should leave its thread alone while it is running. By default, cancelling interrupts
+     * the thread, which may leave a file or database write half done. Uninterruptible tasks which have already started
+     * should check {@link #isCurrentCancelled()} between steps to stop early instead.
+     * Only applies to I/O tasks without delay or repeat.
+     *
+     * @return the instance of this class
+     */
+    public Task uninterruptible() {
+        this.uninterruptible = true;
+        return this;
+    }
+
+    /**
+     * Returns whether the I/O task which is running on this thread has been cancelled.
+     * Used by {@link #uninterruptible()} tasks to stop early.
+     *
+     * @return true if this is an I/O task which has been cancelled, false if not.
+     */
+    public static boolean isCurrentCancelled() {
+        IoTask task = IoTask.current.get();
+
+        return task != null && task.isCancelled();
+    }
+
+    /**
+     * Sets the owner of this task, such as a player, menu or arena.
+     * All tasks of an owner can be cancelled at once using {@link #cancelAll(Object)}.
+     *
+     * @param owner The owner
+     * @return the instance of this class
+     */
+    public Task owner(@NotNull Object owner) {
+        this.owner = owner;
+        return this;
+    }
+
+    /**
+     * Sets the name of this task. Every run of a named Java Runnable is timed, and the timings are grouped by name.
+     *
+     * @param name The name
+     * @return the instance of this class
+     * @see Timings
+     */
+    public Task name(@NotNull String name) {
+        this.name = name;
+        return this;
+    }
+
     /**
      * The delay this task will run with
      *
@@ -114,11 +604,16 @@ public class Task {
     }
 
     /**
-     * Runs this task
+     * Runs this task.
+     * Java Runnables which are {@link #queued()} and run from another thread are added to the {@link TickQueue}
+     * when it is initialized, instead of creating a new Bukkit task.
+     * Delayed and repeating Java Runnables which run on the main thread use the {@link TimingWheel} when it is initialized.
      *
      * @return the BukkitTask instance returned from running this task
      */
     public BukkitTask run() {
+        Runnable runnable = name == null || defaultRunnable == null ? defaultRunnable : Timings.time(plugin, name, defaultRunnable);
+
         if (bukkitRunnable != null) {
             if (async) { // async
                 if (repeat > 0) {
@@ -137,28 +632,102 @@ public class Task {
                     task = bukkitRunnable.runTask(plugin);
                 }
             }
-        } else if (defaultRunnable != null) {
+        } else if (runnable != null && queued && !async && delay <= 0 && repeat <= 0
+                && TickQueue.isInitialized() && !Bukkit.isPrimaryThread()) { // handing work back to the main thread
+            task = TickQueue.submit(runnable);
+        } else if (runnable != null && !async && (delay > 0 || repeat > 0) && TimingWheel.isInitialized()) {
+            task = TimingWheel.schedule(runnable, delay, repeat);
+        } else if (runnable != null && io && delay <= 0 && repeat <= 0) {
+            task = new IoTask(plugin, getIoExecutor(), runnable, !uninterruptible);
+        } else if (runnable != null) {
             BukkitScheduler scheduler = Bukkit.getScheduler();
+            Runnable scheduled = io ? () -> ioExecutor().execute(runnable) : runnable;
             if (async) { // async
                 if (repeat > 0) {
-                    task = scheduler.runTaskTimerAsynchronously(plugin, defaultRunnable, delay, repeat);
+                    task = scheduler.runTaskTimerAsynchronously(plugin, scheduled, delay, repeat);
                 } else if (delay > 0) {
-                    task = scheduler.runTaskLaterAsynchronously(plugin, defaultRunnable, delay);
+                    task = scheduler.runTaskLaterAsynchronously(plugin, scheduled, delay);
                 } else {
-                    task = scheduler.runTaskAsynchronously(plugin, defaultRunnable);
+                    task = scheduler.runTaskAsynchronously(plugin, scheduled);
                 }
             } else {
                 if (repeat > 0) {
-                    task = scheduler.runTaskTimer(plugin, defaultRunnable, delay, repeat);
+                    task = scheduler.runTaskTimer(plugin, scheduled, delay, repeat);
                 } else if (delay > 0) {
-                    task = scheduler.runTaskLater(plugin, defaultRunnable, delay);
+                    task = scheduler.runTaskLater(plugin, scheduled, delay);
                 } else {
-                    task = scheduler.runTask(plugin, defaultRunnable);
+                    task = scheduler.runTask(plugin, scheduled);
                 }
             }
         } else {
             throw new IllegalStateException("Both runnable types are null!");
         }
+
+        if (owner != null) {
+            register(getScopeKey(owner), task);
+        }
         return task;
     }
-}
\ No newline at end of file
+
+    private static void register(Object key, BukkitTask task) {
+        while (true) {
+            Scope scope = scopes.computeIfAbsent(key, k -> new Scope(System.currentTimeMillis(),
+                    ConcurrentHashMap.newKeySet(), new AtomicBoolean(), new AtomicBoolean()));
+            scope.tasks().add(task);
+
+            if (scopes.get(key) == scope && !scope.closed().get()) {
+                return;
+            }
+            if (scope.closed().get()) { // cancelAll was called while the task was being added
+                task.cancel();
+                return;
+            }
+            // the scope was forgotten by the sweep while the task was being added, so add it to a new scope
+        }
+    }
+
+    // a task run on the I/O executor
+    private static class IoTask extends LocalTask {
+
+        private static final ThreadLocal<IoTask> current = new ThreadLocal<>();
+
+        private final Future<?> future;
+        private final boolean interruptible;
+
+        public IoTask(Plugin plugin, ExecutorService executor, Runnable runnable, boolean interruptible) {
+            super(plugin, false);
+            this.interruptible = interruptible;
+            this.future = executor.submit(() -> {
+                current.set(this);
+                try {
+                    runnable.run();
+                } catch (Throwable throwable) {
+                    plugin.getLogger().log(Level.SEVERE, "Error while running I/O task", throwable);
+                } finally {
+                    current.remove();
+                    done = true;
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            future.cancel(interruptible); // not started yet, so never runs, either way
+        }
+    }
+
+    // the tasks of an owner. closed is set when the tasks are cancelled
+    private record Scope(long created, Set<BukkitTask> tasks, AtomicBoolean warned, AtomicBoolean closed) {
+
+    }
+
+    // cancels the tasks of players who leave
+    private static class OwnerWatcher implements EventWatcher {
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void quit(PlayerQuitEvent event) {
+            cancelAll(event.getPlayer().getUniqueId()); // also the tasks owned by the player object
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Creates instance worlds from template worlds by copying the template's region files,
+ * instead of pasting the map into a fresh world every time.
+ * Templates and instances both use {@link VoidGenerator}, so any chunk outside the copied regions is empty.
+ * On Linux, region files are cloned with copy-on-write where the file system supports it (e.g. btrfs or XFS),
+ * so creating an instance costs almost no disk space or time. Instances never share data with the template.
+ * <p>Example:</p>
+ * <blockquote><code>Templates.mark(world);<br>Templates.create(plugin, "arena", "arena-1").thenAccept(instance -> ...);</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class Templates {
+
+    /**
+     * The directories in a world folder which contain chunk data.
+     */
+    private static final List<String> DIRECTORIES = List.of("region", "entities", "poi");
+
+    private static final Map<String, File> templates = new ConcurrentHashMap<>();
+
+    /**
+     * The max amount of files passed to a single cp process, so the argument list never gets too long.
+     */
+    private static final int FILES_PER_CP = 256;
+
+    /**
+     * Whether cp supports --reflink. Only set to false when cp is missing or doesn't know the option.
+     */
+    private static volatile boolean reflink = System.getProperty("os.name").toLowerCase().contains("linux");
+
+    /**
+     * Marks a world as a template. The world is saved and unloaded, which waits until all chunk data has been
+     * written, so the region files are complete and don't change while instances are created from them.
+     * The template shouldn't be loaded again while instances are being created.
+     * Must be called on the main thread.
+     *
+     * @param world The world, which must use {@link VoidGenerator}
+     * @throws IllegalStateException if the world can't be unloaded, e.g. because there are players in it.
+     */
+    public static void mark(@NotNull World world) {
+        if (!(world.getGenerator() instanceof VoidGenerator)) {
+            throw new IllegalArgumentException("World %s doesn't use VoidGenerator".formatted(world.getName()));
+        }
+
+        File folder = world.getWorldFolder();
+        if (!Bukkit.unloadWorld(world, true)) {
+            throw new IllegalStateException("Failed to unload world %s".formatted(world.getName()));
+        }
+
+        templates.put(world.getName(), folder);
+    }
+
+    /**
+     * @param name The name of the world.
+     * @return True when the world has been marked as a template, false if not.
+     */
+    public static boolean isTemplate(@NotNull String name) {
+        return templates.containsKey(name);
+    }
+
+    /**
+     * Creates a new world from a template. The region files are copied asynchronously, after which the world is
+     * loaded on the main thread. Empty region files are skipped.
+     * Instances can be saved like any other world, and should be removed using {@link #discard(Plugin, World)}.
+     *
+     * @param template The name of the template world
+     * @param name     The name of the new world
+     * @return a future with the loaded world.
+     */
+    public static CompletableFuture<World> create(@NotNull Plugin plugin, @NotNull String template, @NotNull String name) {
+        File source = templates.get(template);
+        if (source == null) {
+            throw new IllegalArgumentException("World %s is not a template".formatted(template));
+        }
+
+        File target = new File(Bukkit.getWorldContainer(), name);
+        if (target.exists()) {
+            throw new IllegalArgumentException("World folder %s already exists".formatted(name));
+        }
+
+        CompletableFuture<World> future = new CompletableFuture<>();
+
+        Task.create(plugin).io().execute(() -> {
+            try {
+                copy(source.toPath(), target.toPath());
+            } catch (IOException | UncheckedIOException ex) {
+                future.completeExceptionally(ex);
+                return;
+            }
+
+            Task.create(plugin).execute(() -> {
+                World world = new WorldCreator(name).generator(VoidGenerator.getGenerator()).createWorld();
+
+                if (world == null) {
+                    future.completeExceptionally(new IllegalStateException("Failed to create world %s".formatted(name)));
+                    return;
+                }
+
+                future.complete(world);
+            }).run();
+        }).run();
+
+        return future;
+    }
+
+    /**
+     * Unloads an instance world without saving it and deletes its folder asynchronously.
+     * Must be called on the main thread.
+     *
+     * @param world The world created with {@link #create(Plugin, String, String)}
+     * @return a future which completes when the folder has been deleted.
+     */
+    public static CompletableFuture<Void> discard(@NotNull Plugin plugin, @NotNull World world) {
+        if (isTemplate(world.getName())) {
+            throw new IllegalArgumentException("World %s is a template".formatted(world.getName()));
+        }
+
+        File folder = world.getWorldFolder();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        if (!Bukkit.unloadWorld(world, false)) {
+            future.completeExceptionally(new IllegalStateException("Failed to unload world %s".formatted(world.getName())));
+            return future;
+        }
+
+        Task.create(plugin).io().execute(() -> {
+            try (Stream<Path> paths = Files.walk(folder.toPath())) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) { // delete children first
+                    Files.delete(path);
+                }
+
+                future.complete(null);
+            } catch (IOException ex) {
+                future.completeExceptionally(ex);
+            }
+        }).run();
+
+        return future;
+    }
+
+    // copies all non-empty region files, cloning them where possible
+    private static void copy(Path source, Path target) throws IOException {
+        Map<Path, List<Path>> files = new LinkedHashMap<>(); // by target directory
+
+        for (String directory : DIRECTORIES) {
+            Path from = source.resolve(directory);
+            if (!Files.isDirectory(from)) {
+                continue;
+            }
+
+            Path to = target.resolve(directory);
+            Files.createDirectories(to);
+
+            try (Stream<Path> paths = Files.list(from)) {
+                files.put(to, paths.filter(path -> path.getFileName().toString().endsWith(".mca"))
+                        .filter(path -> path.toFile().length() > 0)
+                        .toList());
+            }
+        }
+
+        for (Map.Entry<Path, List<Path>> entry : files.entrySet()) {
+            List<Path> remaining = entry.getValue();
+
+            while (reflink && !remaining.isEmpty()) {
+                List<Path> batch = remaining.subList(0, Math.min(FILES_PER_CP, remaining.size()));
+                if (!reflink(batch, entry.getKey())) {
+                    break;
+                }
+                remaining = remaining.subList(batch.size(), remaining.size());
+            }
+
+            remaining.parallelStream().forEach(file -> {
+                try {
+                    Files.copy(file, entry.getKey().resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+
+    // clones files using cp, which shares data blocks until either file is written to, or copies them if the file system doesn't support it
+    private static boolean reflink(List<Path> files, Path directory) {
+        List<String> command = new ArrayList<>(List.of("cp", "--reflink=auto", "--"));
+        files.forEach(file -> command.add(file.toString()));
+        command.add(directory.toString());
+
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+            if (process.waitFor() == 0) {
+                return true;
+            }
+            if (output.contains("reflink")) { // e.g. "unrecognized option '--reflink=auto'"
+                reflink = false;
+            }
+            return false;
+        } catch (IOException ex) {
+            if (String.valueOf(ex.getMessage()).contains("error=2,")) { // no cp
+                reflink = false;
+            }
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * A lock-free queue of work for the main thread, which any thread can submit to.
+ * A single repeating task drains the queue every tick, until the time budget for that tick is used up.
+ * Work which doesn't fit in the budget is left for the next tick.
+ * This avoids creating a Bukkit task for every small piece of work which async code hands back to the main thread.
+ * <p>Initialized automatically by {@link dev.efnilite.vilib.ViPlugin}. When initialized, {@link Task#mainExecutor(Plugin)}
+ * uses this queue, and so do tasks created with {@link Task#queued()}. Other tasks still use the Bukkit scheduler,
+ * since queued work may be deferred by a few ticks when the budget is used up.</p>
+ * <p>Metrics are written by the main thread and can be read from any thread.</p>
+ *
+ * @author Efnilite
+ */
+public class TickQueue {
+
+    /**
+     * The default time budget per tick in ms.
+     */
+    public static final double DEFAULT_BUDGET = 2;
+
+    private static final Queue<Work> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger depth = new AtomicInteger();
+    private static final AtomicInteger maxDepth = new AtomicInteger();
+    private static final LongAdder executed = new LongAdder();
+
+    private static volatile Plugin plugin;
+    private static BukkitTask task;
+    private static volatile long budget;
+    private static volatile int lastDrained; // only written by the main thread
+    private static volatile long deferredTicks; // only written by the main thread
+
+    /**
+     * Starts draining the queue every tick with the default budget.
+     *
+     * @param plugin The plugin
+     */
+    public static void init(@NotNull Plugin plugin) {
+        init(plugin, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Starts draining the queue every tick. Must be called on the main thread.
+     *
+     * @param plugin The plugin
+     * @param budget The max time in ms spent draining the queue each tick. At least one item is always run.
+     */
+    public static void init(@NotNull Plugin plugin, double budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be above 0");
+        }
+
+        if (task != null) {
+            task.cancel();
+        }
+
+        TickQueue.budget = (long) (budget * 1_000_000);
+        // scheduled directly, since Task would hand a repeating sync task to the wheel
+        TickQueue.task = Bukkit.getScheduler().runTaskTimer(plugin, TickQueue::drain, 0, 1);
+        TickQueue.plugin = plugin;
+    }
+
+    /**
+     * Stops draining the queue and runs all work which is still queued, ignoring the budget. Must be called on the main thread.
+     * Work which is submitted while stopping is either run here, or rejected by {@link #submit(Runnable)}, never lost.
+     * Runnables passed to {@link Task#coalesce(Plugin, Object, Runnable)} which haven't run yet are also run here.
+     */
+    public static void stop() {
+        Plugin stopped = plugin;
+        plugin = null; // from here on, submit rejects work it can take back from the queue
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        Work work;
+        while ((work = queue.poll()) != null) {
+            depth.decrementAndGet();
+            run(work);
+        }
+
+        Task.flush(stopped); // the scheduled flush is cancelled with the other tasks of the plugin
+    }
+
+    /**
+     * @return True if the queue is being drained, false if not.
+     */
+    public static boolean isInitialized() {
+        return plugin != null;
+    }
+
+    /**
+     * Adds work to the queue. Can be called from any thread.
+     *
+     * @param runnable The work to run on the main thread
+     * @return a task which can be used to cancel the work before it has run.
+     * @throws IllegalStateException if the queue isn't initialized, or has been stopped.
+     */
+    public static BukkitTask submit(@NotNull Runnable runnable) {
+        Plugin owner = plugin;
+        if (owner == null) {
+            throw new IllegalStateException("TickQueue is not initialized");
+        }
+
+        Work work = new Work(owner, runnable);
+        queue.add(work);
+        int current = depth.incrementAndGet();
+
+        // stop() clears plugin before draining, so if it is still set, the drain in stop() will see this work.
+        // if it isn't, stop() may have drained already, so take the work back. if that fails, stop() has run it.
+        if (plugin == null && queue.remove(work)) {
+            depth.decrementAndGet();
+            throw new IllegalStateException("TickQueue has been stopped");
+        }
+
+        maxDepth.accumulateAndGet(current, Math::max);
+        return work;
+    }
+
+    /**
+     * @return The amount of work currently waiting in the queue.
+     */
+    public static int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Returns the highest queue depth since the last call to this method.
+     *
+     * @return the highest depth.
+     */
+    public static int getMaxDepth() {
+        return maxDepth.getAndSet(depth.get());
+    }
+
+    /**
+     * @return The total amount of work run.
+     */
+    public static long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * @return The amount of work run in the last tick.
+     */
+    public static int getLastDrained() {
+        return lastDrained;
+    }
+
+    /**
+     * @return The amount of ticks where the budget was used up before the queue was empty.
+     */
+    public static long getDeferredTicks() {
+        return deferredTicks;
+    }
+
+    private static void drain() {
+        long end = System.nanoTime() + budget;
+        int drained = 0;
+
+        Work work;
+        while ((work = queue.poll()) != null) {
+            depth.decrementAndGet();
+
+            if (run(work)) {
+                drained++;
+            }
+
+            if (System.nanoTime() - end >= 0) {
+                if (!queue.isEmpty()) {
+                    deferredTicks++;
+                }
+                break;
+            }
+        }
+
+        executed.add(drained);
+        lastDrained = drained;
+    }
+
+    // returns true if the work wasn't cancelled
+    private static boolean run(Work work) {
+        boolean ran = !work.cancelled;
+        if (ran) {
+            try {
+                work.runnable.run();
+            } catch (Throwable throwable) {
+                work.getOwner().getLogger().log(Level.SEVERE, "Error while running queued task", throwable);
+            }
+        }
+        work.done = true;
+        return ran;
+    }
+
+    // queued work
+    private static class Work extends LocalTask {
+
+        private final Runnable runnable;
+
+        public Work(Plugin plugin, Runnable runnable) {
+            super(plugin, true);
+            this.runnable = runnable;
+        }
+    }
+}
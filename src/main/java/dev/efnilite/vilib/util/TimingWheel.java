@@ -0,0 +1,256 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+
+/**
+ * A hierarchical timing wheel with a resolution of one tick, for the many short delayed and repeating tasks
+ * created by menus and items. Scheduling and cancelling take constant time, and all timeouts are driven by a single repeating task,
+ * instead of every delayed task being a separate entry in the Bukkit scheduler.
+ * <p>The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots. Level 0 holds timeouts which expire within {@value #SLOTS} ticks,
+ * level 1 those within {@value #SLOTS}² ticks, etc. When the lower levels have completed a rotation, the timeouts of the next slot
+ * of the level above are moved down.</p>
+ * <p>Initialized automatically by {@link dev.efnilite.vilib.ViPlugin}. When initialized, {@link Task} uses this wheel
+ * for delayed and repeating Java Runnables which run on the main thread.</p>
+ *
+ * @author Efnilite
+ */
+public class TimingWheel {
+
+    /**
+     * The amount of slots per level.
+     */
+    public static final int SLOTS = 64;
+
+    /**
+     * The amount of levels.
+     */
+    public static final int LEVELS = 4;
+
+    private static final int BITS = 6;
+    private static final int MASK = SLOTS - 1;
+    private static final long MAX_DELAY = (1L << (BITS * LEVELS)) - 1;
+
+    private static final Timeout[][] wheel = new Timeout[LEVELS][SLOTS]; // heads of linked lists
+    private static final Queue<Timeout> pending = new ConcurrentLinkedQueue<>(); // scheduled from other threads
+
+    private static volatile Plugin plugin;
+    private static BukkitTask task;
+    private static long now = 0;
+    private static int size = 0;
+
+    /**
+     * Starts the wheel. Must be called on the main thread.
+     *
+     * @param plugin The plugin
+     */
+    public static void init(@NotNull Plugin plugin) {
+        if (task != null) {
+            task.cancel();
+        }
+
+        // scheduled directly, since Task would hand a repeating sync task to the wheel
+        TimingWheel.task = Bukkit.getScheduler().runTaskTimer(plugin, TimingWheel::tick, 0, 1);
+        TimingWheel.plugin = plugin;
+    }
+
+    /**
+     * Stops the wheel and discards all timeouts. Must be called on the main thread.
+     */
+    public static void stop() {
+        plugin = null;
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        for (Timeout[] level : wheel) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                for (Timeout timeout = level[slot]; timeout != null; timeout = timeout.next) {
+                    timeout.cancelled = true;
+                }
+                level[slot] = null;
+            }
+        }
+        pending.clear();
+        size = 0;
+    }
+
+    /**
+     * @return True if the wheel is running, false if not.
+     */
+    public static boolean isInitialized() {
+        return plugin != null;
+    }
+
+    /**
+     * Schedules a runnable on the main thread. Can be called from any thread.
+     *
+     * @param runnable The runnable
+     * @param delay    The delay in ticks. Values below 1 run the runnable next tick.
+     * @param period   The interval in ticks. Values below 1 run the runnable once.
+     * @return a task which can be used to cancel the runnable.
+     */
+    public static BukkitTask schedule(@NotNull Runnable runnable, long delay, long period) {
+        Plugin owner = plugin;
+        if (owner == null) {
+            throw new IllegalStateException("TimingWheel is not initialized");
+        }
+
+        Timeout timeout = new Timeout(owner, runnable, Math.max(1, delay), period);
+
+        if (Bukkit.isPrimaryThread()) {
+            timeout.expires = now + timeout.delay;
+            add(timeout);
+        } else {
+            pending.add(timeout);
+        }
+
+        return timeout;
+    }
+
+    /**
+     * @return The amount of scheduled timeouts.
+     */
+    public static int size() {
+        return size + pending.size();
+    }
+
+    private static void tick() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (!timeout.cancelled) {
+                timeout.expires = now + timeout.delay;
+                add(timeout);
+            }
+        }
+
+        now++;
+
+        // move timeouts down when the level below completes a rotation
+        for (int level = 1; level < LEVELS && (now & ((1L << (BITS * level)) - 1)) == 0; level++) {
+            Timeout head = detach(level, (int) ((now >>> (BITS * level)) & MASK));
+
+            while (head != null) {
+                Timeout next = head.next;
+                add(head);
+                head = next;
+            }
+        }
+
+        Timeout head = detach(0, (int) (now & MASK));
+
+        while (head != null) {
+            Timeout next = head.next;
+
+            if (!head.cancelled) {
+                try {
+                    head.runnable.run();
+                } catch (Throwable throwable) {
+                    head.getOwner().getLogger().log(Level.SEVERE, "Error while running scheduled task", throwable);
+                }
+
+                if (head.period > 0 && !head.cancelled) {
+                    head.expires = now + head.period;
+                    add(head);
+                } else {
+                    head.done = true;
+                }
+            }
+            head = next;
+        }
+    }
+
+    // adds a timeout to the slot of the lowest level which its expiry fits in
+    private static void add(Timeout timeout) {
+        long delta = Math.min(Math.max(timeout.expires - now, 0), MAX_DELAY);
+
+        int level = 0;
+        while (delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+
+        long expires = now + delta;
+        int slot = (int) ((expires >>> (BITS * level)) & MASK);
+
+        Timeout head = wheel[level][slot];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheel[level][slot] = timeout;
+        timeout.level = level;
+        timeout.slot = slot;
+        size++;
+    }
+
+    // removes all timeouts from a slot, so cancelling them while they are being handled doesn't change the slot
+    private static Timeout detach(int level, int slot) {
+        Timeout head = wheel[level][slot];
+        wheel[level][slot] = null;
+
+        for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+            timeout.level = -1;
+            size--;
+        }
+        return head;
+    }
+
+    // removes a timeout from its slot
+    private static void remove(Timeout timeout) {
+        if (timeout.level < 0) {
+            return;
+        }
+
+        if (timeout.prev == null) {
+            wheel[timeout.level][timeout.slot] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+
+        timeout.prev = timeout.next = null;
+        timeout.level = -1;
+        size--;
+    }
+
+    // a scheduled runnable
+    private static class Timeout extends LocalTask {
+
+        private final Runnable runnable;
+        private final long delay;
+        private final long period;
+
+        private long expires;
+        private int level = -1;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+
+        public Timeout(Plugin plugin, Runnable runnable, long delay, long period) {
+            super(plugin, true);
+            this.runnable = runnable;
+            this.delay = delay;
+            this.period = period;
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+
+            if (Bukkit.isPrimaryThread()) { // otherwise, the timeout is skipped when it expires
+                remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package dev.efnilite.vilib.util;
+
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times runs of named tasks, to find which task is responsible for lag.
+ * Every run is recorded in a histogram per name, which keeps the count, percentiles and max run time
+ * without storing each run. Percentiles are accurate to within 12.5%.
+ * When a single run takes longer than the slow threshold, a warning is logged.
+ * <p>Example:</p>
+ * <blockquote><code>Task.create(plugin).name("arena-tick").repeat(1).execute(arena::tick).run();<br>
+ * Timings.Snapshot snapshot = Timings.snapshot("arena-tick");</code></blockquote>
+ *
+ * @author Efnilite
+ */
+public class Timings {
+
+    private static final int SUB_BUCKETS = 8; // per power of 2
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private static volatile long slowThreshold = 50_000_000;
+
+    /**
+     * Sets the time after which a single run is logged as slow. Defaults to 50 ms.
+     *
+     * @param ms The threshold in ms
+     */
+    public static void slowThreshold(double ms) {
+        slowThreshold = (long) (ms * 1_000_000);
+    }
+
+    /**
+     * Wraps a runnable so every run is timed.
+     *
+     * @param plugin   The plugin, used to log slow runs
+     * @param name     The name which the timings are grouped by
+     * @param runnable The runnable
+     * @return the timed runnable.
+     */
+    public static Runnable time(@NotNull Plugin plugin, @NotNull String name, @NotNull Runnable runnable) {
+        Histogram histogram = histograms.computeIfAbsent(name, k -> new Histogram());
+
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                runnable.run();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                histogram.record(elapsed);
+
+                if (elapsed > slowThreshold) {
+                    plugin.getLogger().warning("Task %s took %.2f ms (threshold %.2f ms)"
+                            .formatted(name, elapsed / 1_000_000.0, slowThreshold / 1_000_000.0));
+                }
+            }
+        };
+    }
+
+    /**
+     * Records a single run.
+     *
+     * @param name  The name which the timings are grouped by
+     * @param nanos The time the run took in ns
+     */
+    public static void record(@NotNull String name, long nanos) {
+        histograms.computeIfAbsent(name, k -> new Histogram()).record(nanos);
+    }
+
+    /**
+     * @param name The name.
+     * @return The timings of all runs with this name, or null if no tasks with this name have run.
+     */
+    public static @Nullable Snapshot snapshot(@NotNull String name) {
+        Histogram histogram = histograms.get(name);
+
+        return histogram == null ? null : histogram.snapshot(name);
+    }
+
+    /**
+     * @return The timings of all names, sorted by name.
+     */
+    public static Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot(name)));
+        return snapshots;
+    }
+
+    /**
+     * Clears all timings.
+     */
+    public static void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * The timings of a name. All times are in ms.
+     *
+     * @param name  The name
+     * @param count The amount of runs
+     * @param total The total time of all runs
+     * @param p50   The median time of a run
+     * @param p99   The 99th percentile time of a run
+     * @param max   The longest run
+     */
+    public record Snapshot(String name, long count, double total, double p50, double p99, double max) {
+
+        @Override
+        public String toString() {
+            return "%s: %d runs, total %.1f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms".formatted(name, count, total, p50, p99, max);
+        }
+    }
+
+    // log-linear histogram: every power of 2 is split into sub buckets of equal width
+    private static class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long nanos) {
+            nanos = Math.max(0, nanos);
+
+            buckets.incrementAndGet(index(nanos));
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        public Snapshot snapshot(String name) {
+            long[] copy = new long[buckets.length()];
+            long count = 0;
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = buckets.get(i);
+                count += copy[i];
+            }
+
+            return new Snapshot(name, count, total.sum() / 1_000_000.0,
+                    percentile(copy, count, 0.5), percentile(copy, count, 0.99), max.get() / 1_000_000.0);
+        }
+
+        private double percentile(long[] buckets, long count, double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(value(i), max.get()) / 1_000_000.0;
+                }
+            }
+            return max.get() / 1_000_000.0;
+        }
+
+        private static int index(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) nanos;
+            }
+
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos); // at least 3
+            int sub = (int) (nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+            return (exponent - 2) * SUB_BUCKETS + sub;
+        }
+
+        // the middle of a bucket
+        private static long value(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+
+            int exponent = index / SUB_BUCKETS + 2;
+            int sub = index % SUB_BUCKETS;
+            long width = 1L << (exponent - 3);
+            return (SUB_BUCKETS + sub) * width + width / 2;
+        }
+    }
+}
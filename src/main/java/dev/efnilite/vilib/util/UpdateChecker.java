@@ -13,7 +13,7 @@ public class UpdateChecker {
 
     public static void check(Plugin plugin, int resourceId) {
         Task.create(plugin)
-                .async()
+                .io()
                 .execute(() -> {
                     HttpClient client = HttpClient.newHttpClient();
                     HttpRequest request = HttpRequest.newBuilder()